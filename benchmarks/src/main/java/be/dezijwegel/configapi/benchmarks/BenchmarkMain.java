@@ -0,0 +1,33 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkMain {
+
+    // Runs the benchmarks like JMH's own main class, but writes the results as JSON by default
+    // Keep the JSON of each ConfigAPI version to compare them, the file name can be changed with -rff
+    // All JMH options can be given as usual, eg. "GetterBenchmark -p keys=1000" or "-rf csv -rff results.csv"
+
+    private static final String DEFAULT_RESULT_FILE = "benchmark-results.json";
+
+
+    public static void main(String[] args) throws Exception
+    {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        ChainedOptionsBuilder options = new OptionsBuilder().parent( commandLine );
+
+        if ( ! commandLine.getResultFormat().hasValue() )
+        {
+            options.resultFormat( ResultFormatType.JSON );
+
+            if ( ! commandLine.getResult().hasValue() )
+                options.result( DEFAULT_RESULT_FILE );
+        }
+
+        new Runner( options.build() ).run();
+    }
+}
@@ -0,0 +1,169 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class BenchmarkPlugin extends JavaPlugin {
+
+    // A plugin that runs without a server: its data folder is a temporary directory and its resources are kept in memory
+    // The server it uses only provides a logger and a console that discards every message, so reporting is measured without printing
+
+    private final Map<String, byte[]> resources = new ConcurrentHashMap<String, byte[]>();     // The contents of the "jar", by file name
+
+
+    /**
+     * Create a plugin with its own data folder
+     * @param dataFolder the data folder, it is created when it does not exist yet
+     */
+    public BenchmarkPlugin(File dataFolder)
+    {
+        super(new JavaPluginLoader( server() ), new PluginDescriptionFile("ConfigAPIBenchmark", "1.0.0", BenchmarkPlugin.class.getName()), dataFolder, new File(dataFolder, "ConfigAPIBenchmark.jar"));
+        dataFolder.mkdirs();
+    }
+
+
+    /**
+     * Create a temporary data folder for a benchmark
+     * @return the folder, it is deleted when the JVM exits
+     */
+    public static File createDataFolder()
+    {
+        try {
+            File folder = Files.createTempDirectory("configapi-benchmark").toFile();
+            folder.deleteOnExit();
+            return folder;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot create a data folder", ex);
+        }
+    }
+
+
+    /**
+     * Add a resource, as if it was part of the plugin's jar
+     * @param fileName the name of the resource
+     * @param contents the contents of the resource
+     */
+    public void putResource(String fileName, String contents)
+    {
+        resources.put(fileName, contents.getBytes( StandardCharsets.UTF_8 ));
+    }
+
+
+    /**
+     * Write a file to the data folder, as if a server owner edited it
+     * @param fileName the name of the file
+     * @param contents the contents of the file
+     */
+    public void writeLiveFile(String fileName, String contents)
+    {
+        try {
+            Files.write(new File(getDataFolder(), fileName).toPath(), contents.getBytes( StandardCharsets.UTF_8 ));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot write " + fileName, ex);
+        }
+    }
+
+
+    @Override
+    public InputStream getResource(String fileName)
+    {
+        byte[] contents = resources.get( fileName );
+        return contents != null ? new ByteArrayInputStream( contents ) : null;
+    }
+
+
+    @Override
+    public void saveResource(String resourcePath, boolean replace)
+    {
+        File file = new File(getDataFolder(), resourcePath);
+        byte[] contents = resources.get( resourcePath );
+
+        if (contents == null || (file.exists() && ! replace))
+            return;
+
+        try {
+            Files.write(file.toPath(), contents);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Cannot save " + resourcePath, ex);
+        }
+    }
+
+
+    // ------ //
+    // Server //
+    // ------ //
+
+
+    /**
+     * Get the stub server, it is installed as Bukkit's server on first use
+     * @return the server
+     */
+    private static synchronized Server server()
+    {
+        if (Bukkit.getServer() != null)
+            return Bukkit.getServer();
+
+        Logger logger = Logger.getLogger("ConfigAPIBenchmark");
+        logger.setLevel( Level.WARNING );
+
+        ConsoleCommandSender console = stub(ConsoleCommandSender.class, null);
+        Server server = stub(Server.class, name -> {
+            if (name.equals("getLogger"))           return logger;
+            if (name.equals("getConsoleSender"))    return console;
+            return null;
+        });
+
+        Bukkit.setServer( server );
+        return server;
+    }
+
+
+    /**
+     * Create an implementation of an interface that returns the given answers and default values otherwise
+     * @param type the interface
+     * @param answers gives the result of a method by its name, may be null
+     * @return the stub
+     */
+    private static <T> T stub(Class<T> type, Function<String, Object> answers)
+    {
+        Object stub = Proxy.newProxyInstance(BenchmarkPlugin.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getName().equals("hashCode"))    return System.identityHashCode( proxy );
+            if (method.getName().equals("equals"))      return proxy == args[0];
+            if (method.getName().equals("toString"))    return type.getSimpleName();
+
+            Object answer = answers != null ? answers.apply( method.getName() ) : null;
+            if (answer != null)
+                return answer;
+
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class)                        return false;
+            if (returnType == int.class)                            return 0;
+            if (returnType == long.class)                           return 0L;
+            if (returnType == double.class)                         return 0D;
+            if (returnType == float.class)                          return 0F;
+            if (returnType == short.class)                          return (short) 0;
+            if (returnType == byte.class)                           return (byte) 0;
+            if (returnType == char.class)                           return (char) 0;
+            return null;
+        });
+
+        return type.cast( stub );
+    }
+}
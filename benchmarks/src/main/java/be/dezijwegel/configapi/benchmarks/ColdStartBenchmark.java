@@ -0,0 +1,89 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import be.dezijwegel.configapi.ConfigAPI;
+import be.dezijwegel.configapi.Settings;
+import be.dezijwegel.configapi.utility.DisableListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(3)
+public class ColdStartBenchmark {
+
+    // The time it takes to create an instance on server start: copying nothing, but loading both files from scratch
+    // Every invocation uses a new plugin instance, so the cached default config of the previous invocation is not reused
+    // With useBinaryCache, the compiled snapshot that was written during setup is read instead of parsing the YAML files
+
+    @Param({"1000", "100000"})
+    public int keys;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean binaryCache;
+
+    private File dataFolder;
+    private SyntheticConfig config;
+    private Settings settings;
+    private BenchmarkPlugin plugin;
+
+
+    @Setup(Level.Trial)
+    public void setupTrial()
+    {
+        config = new SyntheticConfig(keys, depth);
+        dataFolder = BenchmarkPlugin.createDataFolder();
+
+        settings = new Settings();
+        settings.setReportMissingOptions(false);
+        settings.setUseBinaryCache( binaryCache );
+
+        // Load once to write the live config and, if enabled, the binary cache
+
+        setupInvocation();
+        plugin.writeLiveFile("config.yml", config.getLiveConfig());
+        new ConfigAPI("config.yml", settings, plugin);
+        tearDownInvocation();
+    }
+
+
+    @Setup(Level.Invocation)
+    public void setupInvocation()
+    {
+        plugin = new BenchmarkPlugin( dataFolder );
+        plugin.putResource("config.yml", config.getDefaultConfig());
+    }
+
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation()
+    {
+        DisableListener.runTasks( plugin );
+    }
+
+
+    @Benchmark
+    public ConfigAPI load()
+    {
+        return new ConfigAPI("config.yml", settings, plugin);
+    }
+}
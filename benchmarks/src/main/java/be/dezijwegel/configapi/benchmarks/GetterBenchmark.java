@@ -0,0 +1,156 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import be.dezijwegel.configapi.ConfigAPI;
+import be.dezijwegel.configapi.Settings;
+import be.dezijwegel.configapi.utility.DisableListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GetterBenchmark {
+
+    // The typed getters: options that exist, options that do not exist and options of another type
+    // Each call reads the next path of a list, so the lookups are not all served by the same few cache lines
+
+    @Param({"10", "1000", "100000"})
+    public int keys;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    private ConfigAPI api;
+    private BenchmarkPlugin plugin;
+
+    private String[] intPaths;          // Integer options
+    private String[] stringPaths;       // String options
+    private String[] booleanPaths;      // Boolean options
+    private String[] doublePaths;       // Double options
+    private String[] absentPaths;       // Options that do not exist
+    private int cursor = 0;             // The index of the next path
+
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        SyntheticConfig config = new SyntheticConfig(keys, depth);
+
+        plugin = new BenchmarkPlugin( BenchmarkPlugin.createDataFolder() );
+        plugin.putResource("config.yml", config.getDefaultConfig());
+        plugin.writeLiveFile("config.yml", config.getLiveConfig());
+
+        Settings settings = new Settings();
+        settings.setReportMissingOptions(false);
+        api = new ConfigAPI("config.yml", settings, plugin);
+
+        intPaths = config.getLivePaths(0);
+        stringPaths = config.getLivePaths(1);
+        booleanPaths = config.getLivePaths(2);
+        doublePaths = config.getLivePaths(3);
+        absentPaths = SyntheticConfig.getAbsentPaths(1024);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        DisableListener.runTasks( plugin );
+    }
+
+
+    private String next(String[] paths)
+    {
+        cursor++;
+        if (cursor >= paths.length)
+            cursor = 0;
+        return paths[ cursor ];
+    }
+
+
+    // --- //
+    // Hit //
+    // --- //
+
+
+    @Benchmark
+    public int getIntHit()
+    {
+        return api.getInt( next( intPaths ));
+    }
+
+
+    @Benchmark
+    public String getStringHit()
+    {
+        return api.getString( next( stringPaths ));
+    }
+
+
+    @Benchmark
+    public boolean getBooleanHit()
+    {
+        return api.getBoolean( next( booleanPaths ));
+    }
+
+
+    @Benchmark
+    public double getDoubleHit()
+    {
+        return api.getDouble( next( doublePaths ));
+    }
+
+
+    // ---- //
+    // Miss //
+    // ---- //
+
+
+    @Benchmark
+    public int getIntMiss()
+    {
+        return api.getInt( next( absentPaths ));
+    }
+
+
+    @Benchmark
+    public String getStringMiss()
+    {
+        return api.getString( next( absentPaths ));
+    }
+
+
+    // ------------- //
+    // Type mismatch //
+    // ------------- //
+
+
+    @Benchmark
+    public int getIntTypeMismatch()
+    {
+        return api.getInt( next( stringPaths ));
+    }
+
+
+    @Benchmark
+    public String getStringTypeMismatch()
+    {
+        return api.getString( next( intPaths ));
+    }
+}
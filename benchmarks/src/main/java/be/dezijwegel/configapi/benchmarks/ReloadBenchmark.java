@@ -0,0 +1,113 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import be.dezijwegel.configapi.ConfigAPI;
+import be.dezijwegel.configapi.Settings;
+import be.dezijwegel.configapi.utility.DisableListener;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReloadBenchmark {
+
+    // Everything that parses, diffs or reports: reloads, building a YamlConfiguration, finding and reporting missing options
+    // The live config misses every 10th option of the default config, so every reload has missing options to report
+    // Reported messages go to a console that discards them, this measures the work of reporting without the cost of printing
+
+    @Param({"10", "1000", "100000"})
+    public int keys;
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    @Param({"false", "true"})
+    public boolean streamingLoader;
+
+    private ConfigAPI api;
+    private BenchmarkPlugin plugin;
+
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        SyntheticConfig config = new SyntheticConfig(keys, depth);
+
+        plugin = new BenchmarkPlugin( BenchmarkPlugin.createDataFolder() );
+        plugin.putResource("config.yml", config.getDefaultConfig());
+        plugin.writeLiveFile("config.yml", config.getLiveConfig());
+
+        Settings settings = new Settings();
+        settings.setUseStreamingLoader( streamingLoader );
+        api = new ConfigAPI("config.yml", settings, plugin);
+    }
+
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        DisableListener.runTasks( plugin );
+    }
+
+
+    /**
+     * A reload of a live config that changed: parse, diff, report and merge
+     */
+    @Benchmark
+    public ConfigAPI reloadContents()
+    {
+        api.reloadContents( true );
+        return api;
+    }
+
+
+    /**
+     * A reload of a live config that did not change, which is skipped after checking the file
+     */
+    @Benchmark
+    public ConfigAPI reloadContentsUnchanged()
+    {
+        api.reloadContents();
+        return api;
+    }
+
+
+    @Benchmark
+    public YamlConfiguration getConfiguration()
+    {
+        return api.getConfiguration();
+    }
+
+
+    @Benchmark
+    public Map<String, Object> getMissingOptions()
+    {
+        return api.getMissingOptions();
+    }
+
+
+    @Benchmark
+    public ConfigAPI reportMissingOptions()
+    {
+        api.reportMissingOptions();
+        return api;
+    }
+}
@@ -0,0 +1,183 @@
+package be.dezijwegel.configapi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class SyntheticConfig {
+
+    // Generates config files of a given size and nesting depth
+    // Option i is an Integer, String, Boolean or Double (in that order, repeating) and lives in a section that is picked from the digits of i,
+    // so every depth has sections with up to 8 children and the same amount of options always produces the same file
+    //
+    // The live config is the default config without every 10th option, so reloads have missing options to diff and report
+
+    private static final int FANOUT = 8;            // The maximum amount of subsections per section
+
+    private final List<String> paths = new ArrayList<String>();                 // The path of every option, in file order
+    private final Map<String, Object> tree = new LinkedHashMap<String, Object>();   // The nested contents
+    private final String defaultConfig;
+    private final String liveConfig;
+
+
+    /**
+     * Generate a config
+     * @param keys the amount of options
+     * @param depth the nesting depth of each option, 1 means every option is at the top level
+     */
+    public SyntheticConfig(int keys, int depth)
+    {
+        for (int i = 0; i < keys; i++)
+            put(pathOf(i, depth), valueOf( i ));
+
+        this.defaultConfig = toYaml(tree, false);
+        this.liveConfig = toYaml(tree, true);
+    }
+
+
+    private static String pathOf(int index, int depth)
+    {
+        StringBuilder path = new StringBuilder();
+        int rest = index;
+
+        for (int level = 1; level < depth; level++)
+        {
+            path.append("section").append(rest % FANOUT).append('.');
+            rest /= FANOUT;
+        }
+
+        return path.append("option").append(index).toString();
+    }
+
+
+    private static Object valueOf(int index)
+    {
+        switch (index % 4)
+        {
+            case 0:     return index;
+            case 1:     return "value " + index;
+            case 2:     return index % 3 == 0;
+            default:    return index + 0.5;
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void put(String path, Object value)
+    {
+        paths.add( path );
+
+        String[] parts = path.split("\\.");
+        Map<String, Object> section = tree;
+
+        for (int i = 0; i < parts.length - 1; i++)
+            section = (Map<String, Object>) section.computeIfAbsent(parts[i], key -> new LinkedHashMap<String, Object>());
+
+        section.put(parts[ parts.length - 1 ], value);
+    }
+
+
+    // ---- //
+    // YAML //
+    // ---- //
+
+
+    private static String toYaml(Map<String, Object> tree, boolean skipEveryTenth)
+    {
+        StringBuilder yaml = new StringBuilder();
+        write(yaml, tree, "", skipEveryTenth);
+        return yaml.toString();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static void write(StringBuilder yaml, Map<String, Object> section, String indent, boolean skipEveryTenth)
+    {
+        for (Map.Entry<String, Object> entry : section.entrySet())
+        {
+            Object value = entry.getValue();
+
+            if (value instanceof Map)
+            {
+                // Sections of which every option was skipped are left out entirely
+
+                StringBuilder children = new StringBuilder();
+                write(children, (Map<String, Object>) value, indent + "  ", skipEveryTenth);
+
+                if (children.length() > 0)
+                    yaml.append(indent).append(entry.getKey()).append(":\n").append(children);
+            }
+            else if ( ! skipEveryTenth || indexOf( entry.getKey() ) % 10 != 0 )
+            {
+                yaml.append(indent).append(entry.getKey()).append(": ");
+                yaml.append(value instanceof String ? "'" + value + "'" : String.valueOf( value )).append('\n');
+            }
+        }
+    }
+
+
+    private static int indexOf(String key)
+    {
+        return Integer.parseInt( key.substring( "option".length() ));
+    }
+
+
+    // ------- //
+    // Getters //
+    // ------- //
+
+
+    /**
+     * Get the default config, which contains every option
+     * @return the YAML contents
+     */
+    public String getDefaultConfig()
+    {
+        return defaultConfig;
+    }
+
+
+    /**
+     * Get the live config, which misses every 10th option
+     * @return the YAML contents
+     */
+    public String getLiveConfig()
+    {
+        return liveConfig;
+    }
+
+
+    /**
+     * Get the paths of all options of a type that are present in the live config
+     * @param type the remainder of the option index divided by 4: 0 for Integers, 1 for Strings, 2 for Booleans and 3 for Doubles
+     * @return the paths, in file order
+     */
+    public String[] getLivePaths(int type)
+    {
+        List<String> matching = new ArrayList<String>();
+
+        for (String path : paths)
+        {
+            int index = indexOf( path.substring( path.lastIndexOf('.') + 1 ));
+            if (index % 4 == type && index % 10 != 0)
+                matching.add( path );
+        }
+
+        return matching.toArray( new String[0] );
+    }
+
+
+    /**
+     * Get paths that do not exist in either config
+     * @param amount the amount of paths
+     * @return the paths
+     */
+    public static String[] getAbsentPaths(int amount)
+    {
+        String[] absent = new String[ amount ];
+        for (int i = 0; i < amount; i++)
+            absent[i] = "absent.option" + i;
+        return absent;
+    }
+}
@@ -0,0 +1,442 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.AtomicFileWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class BinarySnapshot {
+
+    // A compiled copy of the loaded values, stored next to the live config to speed up the next start
+    // The header contains the hashes of every source, a snapshot is only used when all of them still match
+    // Only Strings, numbers, booleans, Lists and Maps of those can be stored. Other values (ItemStacks, serialized objects that are loaded lazily, ...) prevent a snapshot from being written
+    //
+    // Layout (big endian):
+    //      int     magic
+    //      byte    format version
+    //      long    live config size, live config hash, default config hash, settings hash
+    //      table   the loaded values
+    //      table   the missing options (count -1 when not computed)
+    //      table   the redundant options (count -1 when not computed)
+    //      int     the amount of schema violations, followed by (String path, String expected, value found, value used, boolean converted) for each
+    // where a table is an int count, followed by (String path, byte kind, value) for each entry
+
+    private static final int MAGIC = 0x43415049;        // "CAPI"
+    private static final byte VERSION = 3;
+
+    private static final byte TAG_NULL      = 0;
+    private static final byte TAG_STRING    = 1;
+    private static final byte TAG_INT       = 2;
+    private static final byte TAG_LONG      = 3;
+    private static final byte TAG_DOUBLE    = 4;
+    private static final byte TAG_BOOLEAN   = 5;
+    private static final byte TAG_LIST      = 6;
+    private static final byte TAG_MAP       = 7;
+
+    final ValueTable contents;                          // The loaded values
+    final Map<String, Object> missingOptions;           // The missing options, null if they were not computed
+    final Map<String, Object> redundantOptions;         // The redundant options, null if they were not computed
+    final List<SchemaViolation> violations;             // The values that did not match the schema, empty if none were found or the config was not validated
+
+
+    private BinarySnapshot(ValueTable contents, Map<String, Object> missingOptions, Map<String, Object> redundantOptions, List<SchemaViolation> violations)
+    {
+        this.contents = contents;
+        this.missingOptions = missingOptions;
+        this.redundantOptions = redundantOptions;
+        this.violations = violations;
+    }
+
+
+    // ------- //
+    // Reading //
+    // ------- //
+
+
+    /**
+     * Read a snapshot
+     * The file is read into memory at once instead of being mapped: a mapping can only be released by the garbage collector,
+     * and an open mapping prevents the snapshot from being replaced on some operating systems (eg. Windows)
+     * @param file the snapshot file
+     * @param key the hashes of the current sources
+     * @param storage the storage flags of the table that is read (see ValueTable#COMPACT_STORAGE)
+     * @return the snapshot or null when it does not exist, is invalid or was created from different sources
+     */
+    static BinarySnapshot read(File file, Key key, int storage)
+    {
+        if ( ! file.isFile() )
+            return null;
+
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap( Files.readAllBytes( file.toPath() ) );
+
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION)
+                return null;
+
+            Key stored = new Key(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+            if ( ! stored.equals( key ))
+                return null;
+
+            ValueTable contents = readTable(buffer, storage);
+            Map<String, Object> missing = readOptions( buffer );
+            Map<String, Object> redundant = readOptions( buffer );
+            List<SchemaViolation> violations = readViolations( buffer );
+
+            return new BinarySnapshot(contents, missing, redundant, violations);
+        }
+        catch (IOException | BufferUnderflowException | IllegalArgumentException ex)
+        {
+            return null;
+        }
+    }
+
+
+    private static ValueTable readTable(ByteBuffer buffer, int storage)
+    {
+        int count = readCount( buffer );
+        ValueTable.Builder builder = new ValueTable.Builder(count, storage);
+
+        for (int i = 0; i < count; i++)
+        {
+            String path = readString( buffer );
+            byte kind = buffer.get();
+
+            if (kind == ValueTable.OBJECT)
+                builder.put(path, readValue( buffer ));
+            else
+                builder.putPrimitive(path, kind, buffer.getLong());
+        }
+
+        return builder.build();
+    }
+
+
+    private static Map<String, Object> readOptions(ByteBuffer buffer)
+    {
+        if (buffer.getInt( buffer.position() ) == -1)
+        {
+            buffer.getInt();
+            return null;
+        }
+
+        int count = readCount( buffer );
+
+        Map<String, Object> options = new LinkedHashMap<String, Object>();
+        for (int i = 0; i < count; i++)
+            options.put(readString( buffer ), readValue( buffer ));
+
+        return options;
+    }
+
+
+    private static List<SchemaViolation> readViolations(ByteBuffer buffer)
+    {
+        int count = readCount( buffer );
+
+        List<SchemaViolation> violations = new ArrayList<SchemaViolation>( count );
+        for (int i = 0; i < count; i++)
+            violations.add( new SchemaViolation(readString( buffer ), readString( buffer ), readValue( buffer ), readValue( buffer ), buffer.get() != 0) );
+
+        return Collections.unmodifiableList( violations );
+    }
+
+
+    private static Object readValue(ByteBuffer buffer)
+    {
+        byte tag = buffer.get();
+
+        switch (tag)
+        {
+            case TAG_NULL:      return null;
+            case TAG_STRING:    return readString( buffer );
+            case TAG_INT:       return buffer.getInt();
+            case TAG_LONG:      return buffer.getLong();
+            case TAG_DOUBLE:    return buffer.getDouble();
+            case TAG_BOOLEAN:   return buffer.get() != 0;
+            case TAG_LIST:
+            {
+                int size = readCount( buffer );
+                List<Object> list = new ArrayList<Object>( size );
+                for (int i = 0; i < size; i++)
+                    list.add( readValue( buffer ) );
+                return list;
+            }
+            case TAG_MAP:
+            {
+                int size = readCount( buffer );
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                for (int i = 0; i < size; i++)
+                    map.put(readString( buffer ), readValue( buffer ));
+                return map;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag);
+        }
+    }
+
+
+    private static String readString(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[ readCount( buffer ) ];
+        buffer.get( bytes );
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Read the length of a String or the size of a collection
+     * Every element takes at least one byte, so a corrupt length is detected before anything is allocated for it
+     * @param buffer the buffer to read from
+     * @return the length, at least zero
+     * @throws BufferUnderflowException when the length is negative or larger than the rest of the file
+     */
+    private static int readCount(ByteBuffer buffer)
+    {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining())
+            throw new BufferUnderflowException();
+        return count;
+    }
+
+
+    // ------- //
+    // Writing //
+    // ------- //
+
+
+    /**
+     * Write a snapshot, the file is replaced atomically
+     * Nothing is written (and an existing snapshot is deleted) when a value cannot be stored
+     * @param file the snapshot file
+     * @param key the hashes of the sources the values were loaded from
+     * @param contents the loaded values
+     * @param missingOptions the missing options, or null if they were not computed
+     * @param redundantOptions the redundant options, or null if they were not computed
+     * @param violations the values that did not match the schema
+     * @return true if the snapshot was written
+     */
+    static boolean write(File file, Key key, ValueTable contents, Map<String, Object> missingOptions, Map<String, Object> redundantOptions, List<SchemaViolation> violations)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream( bytes ))
+        {
+            out.writeInt( MAGIC );
+            out.writeByte( VERSION );
+            out.writeLong( key.liveSize );
+            out.writeLong( key.liveHash );
+            out.writeLong( key.defaultHash );
+            out.writeLong( key.settingsHash );
+
+            if ( ! writeTable(out, contents) || ! writeOptions(out, missingOptions) || ! writeOptions(out, redundantOptions) || ! writeViolations(out, violations))
+            {
+                Files.deleteIfExists( file.toPath() );
+                return false;
+            }
+        }
+        catch (IOException ex)
+        {
+            return false;
+        }
+
+        try {
+            AtomicFileWriter.write(file, bytes.toByteArray());
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+
+    private static boolean writeTable(DataOutputStream out, ValueTable contents) throws IOException
+    {
+        out.writeInt( contents.size() );
+
+        for (int i = 0; i < contents.size(); i++)
+        {
+            writeString(out, contents.pathAt( i ));
+
+            // Compact Strings are written as regular Strings, the table that reads them decides how to store them
+
+            byte kind = contents.kindAt( i ) == ValueTable.LATIN1 ? ValueTable.OBJECT : contents.kindAt( i );
+            out.writeByte( kind );
+
+            if (kind != ValueTable.OBJECT)
+                out.writeLong( contents.bitsAt( i ) );
+            else if ( ! writeValue(out, contents.rawObjectAt( i )) )
+                return false;
+        }
+
+        return true;
+    }
+
+
+    private static boolean writeViolations(DataOutputStream out, List<SchemaViolation> violations) throws IOException
+    {
+        out.writeInt( violations.size() );
+
+        for (SchemaViolation violation : violations)
+        {
+            writeString(out, violation.getPath());
+            writeString(out, violation.getExpected());
+
+            if ( ! writeValue(out, violation.getFound()) || ! writeValue(out, violation.getUsed()) )
+                return false;
+
+            out.writeBoolean( violation.isConverted() );
+        }
+
+        return true;
+    }
+
+
+    private static boolean writeOptions(DataOutputStream out, Map<String, Object> options) throws IOException
+    {
+        if (options == null)
+        {
+            out.writeInt( -1 );
+            return true;
+        }
+
+        out.writeInt( options.size() );
+
+        for (Map.Entry<String, Object> entry : options.entrySet())
+        {
+            writeString(out, entry.getKey());
+            if ( ! writeValue(out, entry.getValue()) )
+                return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Write a tagged value
+     * @return false when the value (or an element of it) cannot be stored
+     */
+    private static boolean writeValue(DataOutputStream out, Object value) throws IOException
+    {
+        if (value == null)
+        {
+            out.writeByte( TAG_NULL );
+        }
+        else if (value instanceof String)
+        {
+            out.writeByte( TAG_STRING );
+            writeString(out, (String) value);
+        }
+        else if (value instanceof Integer)
+        {
+            out.writeByte( TAG_INT );
+            out.writeInt( (Integer) value );
+        }
+        else if (value instanceof Long)
+        {
+            out.writeByte( TAG_LONG );
+            out.writeLong( (Long) value );
+        }
+        else if (value instanceof Double)
+        {
+            out.writeByte( TAG_DOUBLE );
+            out.writeDouble( (Double) value );
+        }
+        else if (value instanceof Boolean)
+        {
+            out.writeByte( TAG_BOOLEAN );
+            out.writeByte( (Boolean) value ? 1 : 0 );
+        }
+        else if (value instanceof List)
+        {
+            out.writeByte( TAG_LIST );
+            out.writeInt( ((List<?>) value).size() );
+            for (Object element : (List<?>) value)
+            {
+                if ( ! writeValue(out, element) )
+                    return false;
+            }
+        }
+        else if (value instanceof Map)
+        {
+            out.writeByte( TAG_MAP );
+            out.writeInt( ((Map<?, ?>) value).size() );
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+            {
+                if ( ! (entry.getKey() instanceof String) )
+                    return false;
+                writeString(out, (String) entry.getKey());
+                if ( ! writeValue(out, entry.getValue()) )
+                    return false;
+            }
+        }
+        else
+        {
+            return false;
+        }
+
+        return true;
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+
+    // --- //
+    // Key //
+    // --- //
+
+
+    static final class Key {
+
+        // The hashes of every source a snapshot depends on
+
+        private final long liveSize;            // The size of the live config
+        private final long liveHash;            // The hash of the live config's contents
+        private final long defaultHash;         // The hash of the default config's contents
+        private final long settingsHash;        // The hash of the settings that were used while loading
+
+
+        Key(long liveSize, long liveHash, long defaultHash, long settingsHash)
+        {
+            this.liveSize = liveSize;
+            this.liveHash = liveHash;
+            this.defaultHash = defaultHash;
+            this.settingsHash = settingsHash;
+        }
+
+
+        @Override
+        public boolean equals(Object other)
+        {
+            if ( ! (other instanceof Key) )
+                return false;
+
+            Key key = (Key) other;
+            return liveSize == key.liveSize && liveHash == key.liveHash && defaultHash == key.defaultHash && settingsHash == key.settingsHash;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return Long.hashCode( liveHash ) * 31 + Long.hashCode( defaultHash );
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package be.dezijwegel.configapi;
 
+import be.dezijwegel.configapi.utility.AtomicFileWriter;
+import be.dezijwegel.configapi.utility.BackgroundExecutor;
+import be.dezijwegel.configapi.utility.DisableListener;
+import be.dezijwegel.configapi.utility.FileFingerprint;
+import be.dezijwegel.configapi.utility.FileWatcher;
 import be.dezijwegel.configapi.utility.Logger;
 import jdk.internal.jline.internal.Nullable;
 import org.bukkit.*;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
@@ -14,13 +20,26 @@ import org.bukkit.util.Vector;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 
 public class ConfigAPI{
@@ -31,12 +50,36 @@ public class ConfigAPI{
 
     // Expansion ideas:
     //      allow message customisation
-    //      allow writing to the live config (ex: a new option) which should include its comments
+    //      keep the comments of the live config when writing to it
 
     private JavaPlugin plugin;              // An instance of which plugin's config files are being managed
     private String fileName;                // The name of the config file being managed
 
-    private Map<String, Object> contents;   // Will contain the loaded values
+    volatile ConfigSnapshot snapshot = ConfigSnapshot.EMPTY;    // Will contain the loaded values, replaced as a whole on each reload
+    private final Object reloadLock = new Object();             // Makes sure reloads are handled one at a time, held for a whole reload
+    private final Object stateLock = new Object();              // Guards the unsaved changes, key handles and watching, only held briefly so set() never waits for a reload
+    private long performedReloads = 0;                          // The amount of reloads that parsed the live config
+    private long skippedReloads = 0;                            // The amount of reloads that were skipped because nothing changed
+
+    private final List<ConfigKey<?>> keys = new ArrayList<ConfigKey<?>>();  // All key handles, indexed by their slot
+
+    // Snapshots are published through compareAndSet: a thread that derived its snapshot from an older one tries again
+    private static final AtomicReferenceFieldUpdater<ConfigAPI, ConfigSnapshot> SNAPSHOT = AtomicReferenceFieldUpdater.newUpdater(ConfigAPI.class, ConfigSnapshot.class, "snapshot");
+
+    private FileWatcher.Watch watch;                // Reloads on changes to the live config, null when watching is disabled
+    private Runnable disableHook;                   // Stops watching when the plugin is disabled, null until watching was started
+
+    private static final long SAVE_DELAY_MILLIS = 1000;    // Values that are set within this time are written to the live config together
+
+    private final Object writeLock = new Object();                                                  // Makes sure changes are written one batch at a time
+    private Map<String, Map<String, Object>> unsavedChanges = new LinkedHashMap<String, Map<String, Object>>(); // Set values that are waiting to be written, by path
+    private Map<String, Map<String, Object>> savingChanges = new LinkedHashMap<String, Map<String, Object>>();  // Set values that are being written right now, by path
+    private boolean saveScheduled = false;          // Whether a background write is waiting to run
+    private Runnable saveHook;                      // Writes unsaved changes when the plugin is disabled, null until a value was set
+
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<Subscription>();  // Get notified of the changes of each reload
+
+    private final Metrics metrics = new Metrics();      // Counts lookups and reloads while collectMetrics is enabled
 
     private Settings settings = new Settings();          // An instance that handles all settings
 
@@ -73,6 +116,20 @@ public class ConfigAPI{
     }
 
 
+    /**
+     * Creates an instance of ConfigAPI without loading or copying any files, used by ConfigRegistry which loads its instances in parallel
+     * @param fileName the name of the file you wish to read (config.yml, lang.yml, etc.)
+     * @param settings the settings to be used by this API
+     * @param plugin your plugin
+     * @param unused only distinguishes this constructor from the public one
+     */
+    ConfigAPI(String fileName, Settings settings, JavaPlugin plugin, boolean unused) {
+        this.settings = settings;
+        this.plugin = plugin;
+        this.fileName = fileName;
+    }
+
+
     /**
      * Contains all options for startup
      */
@@ -81,8 +138,6 @@ public class ConfigAPI{
         this.plugin = plugin;           // Keep track of an instance of this plugin
         this.fileName = fileName;       // Store the filename of this config file
 
-        contents = new HashMap<String, Object>();       // Create a Map that will contain all paths and values
-
         if ( settings.getAutoLoadValues() )             // Check if auto loading is enabled
         {
             reloadContents();                           // Load contents into memory
@@ -104,7 +159,33 @@ public class ConfigAPI{
      */
     public boolean contains(String path)
     {
-        return contents.containsKey( path );
+        return snapshot.contents.contains( path );
+    }
+
+
+    /**
+     * Get the keys within a section, in the order they appear in the file
+     * This is answered from an index that is built while loading, the live config is not read again
+     * @param section the full path of the section, use an empty String for the root
+     * @param deep false to only get the direct children, true to get all paths within this section (subsections included)
+     * @return the keys relative to the section, empty if the section contains no values
+     */
+    public Set<String> getKeys(String section, boolean deep)
+    {
+        return new ConfigSection(snapshot.contents, section).getKeys( deep );
+    }
+
+
+    /**
+     * Get a view of a section of the loaded values
+     * The view reads from the values that are loaded right now and is not affected by later reloads, get a new view after reloading
+     * @param section the full path of the section, use an empty String for the root
+     * @return a ConfigSection or null if the section contains no values
+     */
+    public ConfigSection getSection(String section)
+    {
+        ValueTable table = snapshot.contents;
+        return table.hasEntriesWithin( section ) ? new ConfigSection(table, section) : null;
     }
 
 
@@ -121,51 +202,106 @@ public class ConfigAPI{
     /**
      * Get an Object at a given path
      * Subsections are indicated with a '.' just like they are for a ConfigurationSection
+     * Numbers and booleans are stored unboxed, they will be boxed by this method. Prefer the typed getters for those values
      * @param path path
      * @return Object
      */
     public Object getObject(String path)
     {
-        return contents.get( path );
+        countLookup(Metrics.OBJECT, path);
+
+        Object value = snapshot.contents.get( path );
+        if (value == null)
+            countMiss(Metrics.OBJECT, path);
+
+        return value;
     }
 
 
     /**
      * Get a setting from the config file
      * Subsections are indicated with a '.' just like they are for a ConfigurationSection
+     * Numbers and booleans are read as their text, eg. "10"
      * @param path the path of the setting
      * @return an empty String when the option does not exist or the value is not of the requested type
      */
     public String getString(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.STRING, path);
+
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
 
-        if ( value instanceof String )
+        if ( table.hasView(index, ValueTable.AS_STRING) )
         {
-            return (String) value;
+            return table.stringAt( index );
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting a String (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.STRING, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting a String (and found: " + table.typeNameAt( index ) + ")");
             return "";
         }
     }
 
 
 
+    /**
+     * Get a message from the config file, prepared to be sent many times
+     * Color codes ('&') are already translated and placeholders such as {player} are split from the text,
+     * rendering the message is about as cheap as a single concatenation
+     * A message is compiled once per reload, the next call for the same path returns the same template
+     * @param path the path of the message
+     * @return the template, an empty template when the option does not exist or is not a String
+     */
+    public MessageTemplate getMessage(String path)
+    {
+        countLookup(Metrics.MESSAGE, path);
+
+        ConfigSnapshot current = snapshot;
+
+        MessageTemplate message = current.messages.get( path );
+        if (message != null)
+        {
+            if (message == MessageTemplate.EMPTY)
+                countMiss(Metrics.MESSAGE, path);
+            return message;
+        }
+
+        ValueTable table = current.contents;
+        int index = table.indexOf( path );
+
+        if ( table.hasView(index, ValueTable.AS_STRING) )
+        {
+            message = MessageTemplate.compile( table.stringAt( index ) );
+        } else {
+            countMiss(Metrics.MESSAGE, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting a message (and found: " + table.typeNameAt( index ) + ")");
+            message = MessageTemplate.EMPTY;
+        }
+
+        MessageTemplate previous = current.messages.putIfAbsent(path, message);
+        return previous != null ? previous : message;
+    }
+
+
+
     /**
      * Get a setting from the config file
      * Subsections are indicated with a '.' just like they are for a ConfigurationSection
+     * Any whole number within the range of an int can be read, eg. 10 or 10.0
      * @param path the path of the setting
      * @return zero (0) when the option does not exist or the value is not of the requested type
      */
     public int getInt(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.INT, path);
 
-        if ( value instanceof Integer )
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
+
+        if ( table.hasView(index, ValueTable.AS_INT) )
         {
-            return (Integer) value;
+            return table.intAt( index );
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting an Integer (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.INT, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting an Integer (and found: " + table.typeNameAt( index ) + ")");
             return 0;
         }
     }
@@ -178,14 +314,17 @@ public class ConfigAPI{
      * @return false when the option does not exist or the value is not of the requested type
      */
     public boolean getBoolean(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.BOOLEAN, path);
 
-        if ( value instanceof Boolean )
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
+
+        if ( table.hasView(index, ValueTable.AS_BOOLEAN) )
         {
-            return (Boolean) value;
+            return table.booleanAt( index );
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting a Boolean (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.BOOLEAN, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting a Boolean (and found: " + table.typeNameAt( index ) + ")");
             return false;
         }
     }
@@ -194,18 +333,22 @@ public class ConfigAPI{
     /**
      * Get a setting from the config file
      * Subsections are indicated with a '.' just like they are for a ConfigurationSection
+     * Any number can be read, eg. 10 written without a decimal point
      * @param path the path of the setting
      * @return zero (0) when the option does not exist or the value is not of the requested type
      */
     public double getDouble(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.DOUBLE, path);
 
-        if ( value instanceof Double )
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
+
+        if ( table.hasView(index, ValueTable.AS_DOUBLE) )
         {
-            return (Double) value;
+            return table.doubleAt( index );
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting a Double (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.DOUBLE, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting a Double (and found: " + table.typeNameAt( index ) + ")");
             return 0;
         }
     }
@@ -214,18 +357,22 @@ public class ConfigAPI{
     /**
      * Get a setting from the config file
      * Subsections are indicated with a '.' just like they are for a ConfigurationSection
+     * Any whole number can be read, eg. values that were parsed as an Integer or written as 10.0
      * @param path the path of the setting
      * @return zero (0) when the option does not exist or the value is not of the requested type
      */
     public long getLong(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.LONG, path);
 
-        if ( value instanceof Long )
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
+
+        if ( table.hasView(index, ValueTable.AS_LONG) )
         {
-            return (Long) value;
+            return table.longAt( index );
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting a Long (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.LONG, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting a Long (and found: " + table.typeNameAt( index ) + ")");
             return 0;
         }
     }
@@ -238,19 +385,370 @@ public class ConfigAPI{
      * @return null when the option does not exist or the value is not of the requested type
      */
     public ItemStack getItemStack(String path) {
-        Object value = contents.get( path );
+        countLookup(Metrics.ITEM_STACK, path);
+
+        ValueTable table = snapshot.contents;
+        int index = table.indexOf( path );
+        Object value = index >= 0 ? table.objectAt( index ) : null;
 
         if ( value instanceof ItemStack )
         {
             return (ItemStack) value;
         } else {
-            if (settings.getDoDebugLogging())
-                Logger.log("Path " + path + " was not found in " + fileName + " while expecting an ItemStack (and found: " + value.getClass().getSimpleName() + ")");
+            countMiss(Metrics.ITEM_STACK, path);
+            Logger.debug(settings, () -> "Path " + path + " was not found in " + fileName + " while expecting an ItemStack (and found: " + table.typeNameAt( index ) + ")");
             return null;
         }
     }
     
 
+    // ------------ //
+    // Writing data //
+    // ------------ //
+
+
+    /**
+     * Set the value at a path, or remove it by setting it to null
+     * The new value can be read right away, it is written to the live config in the background shortly after
+     * This never waits for a reload that is in progress, so it is safe to call on the main thread
+     * Values that are set shortly after each other are written to the file at once
+     * Maps and ConfigurationSections are stored as separate values for each of their paths
+     * Note: the comments of the live config are not kept when it is written
+     * @param path the full path
+     * @param value the new value, or null to remove this path
+     */
+    public void set(String path, @Nullable Object value)
+    {
+        Map<String, Object> leaves = new LinkedHashMap<String, Object>();
+        flatten(path, value, leaves);
+
+        // The change is recorded before it is published, so a reload that publishes in the meantime includes it
+
+        synchronized (stateLock)
+        {
+            // A newer value replaces the unsaved one, it is moved to the end so the changes are still written in order
+
+            unsavedChanges.remove( path );
+            unsavedChanges.put(path, leaves);
+            scheduleSave();
+        }
+
+        ConfigSnapshot previous;
+        ConfigSnapshot next;
+
+        do {
+            previous = snapshot;
+            ValueTable contents = previous.contents.with(path, leaves);
+            next = previous.withContents(contents, resolveKeys( contents ));
+        } while ( ! SNAPSHOT.compareAndSet(this, previous, next) );
+
+        // Only the set path and the paths within it can have changed
+
+        if ( ! listeners.isEmpty() )
+        {
+            ConfigChange change = ConfigChange.at(path, previous.contents, next.contents);
+            notifyListeners( change.isEmpty() ? null : change );
+        }
+    }
+
+
+    /**
+     * Write all values that were set to the live config right away, instead of waiting for the background write
+     * This method blocks until the file is written, nothing happens when there are no unsaved changes
+     */
+    public void saveChanges()
+    {
+        synchronized (writeLock)
+        {
+            Map<String, Map<String, Object>> batch;
+
+            synchronized (stateLock)
+            {
+                saveScheduled = false;
+                if (unsavedChanges.isEmpty())
+                    return;
+
+                batch = unsavedChanges;
+                savingChanges = batch;
+                unsavedChanges = new LinkedHashMap<String, Map<String, Object>>();
+            }
+
+            File file = getLiveFile();
+
+            try {
+                byte[] before = file.isFile() ? Files.readAllBytes( file.toPath() ) : new byte[0];
+
+                YamlConfiguration live = new YamlConfiguration();
+                live.loadFromString( new String(before, StandardCharsets.UTF_8) );
+
+                for (Map.Entry<String, Map<String, Object>> change : batch.entrySet())
+                {
+                    // Setting a single value in place keeps its position in the file
+
+                    if ( ! change.getValue().containsKey( change.getKey() ))
+                        live.set(change.getKey(), null);
+                    for (Map.Entry<String, Object> leaf : change.getValue().entrySet())
+                        live.set(leaf.getKey(), leaf.getValue());
+                }
+
+                byte[] after = live.saveToString().getBytes( StandardCharsets.UTF_8 );
+                AtomicFileWriter.write(file, after);
+
+                // A reload that read the file before it was written still has to apply these changes: wait until it is published
+
+                synchronized (reloadLock)
+                {
+                    synchronized (stateLock)
+                    {
+                        savingChanges = new LinkedHashMap<String, Map<String, Object>>();
+                    }
+
+                    // The loaded values already contain the written changes: prevent a needless reload when the file was not edited by someone else
+
+                    FileFingerprint read = FileFingerprint.of(before, 0);
+                    FileFingerprint written = FileFingerprint.of(after, file.lastModified());
+                    ConfigSnapshot current;
+
+                    do {
+                        current = snapshot;
+                    } while (current.liveFingerprint.sameContents( read ) && ! SNAPSHOT.compareAndSet(this, current, current.withLiveFingerprint( written )));
+                }
+            } catch (IOException | InvalidConfigurationException ex) {
+                Logger.sendToConsole("Could not save the changes to " + fileName + ": " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+
+                // Keep the changes so a later write can try again, newer changes go after them
+
+                synchronized (stateLock)
+                {
+                    savingChanges = new LinkedHashMap<String, Map<String, Object>>();
+                    for (Map.Entry<String, Map<String, Object>> newer : unsavedChanges.entrySet())
+                    {
+                        batch.remove( newer.getKey() );
+                        batch.put(newer.getKey(), newer.getValue());
+                    }
+                    unsavedChanges = batch;
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Check whether some values were set but not written to the live config yet
+     * @return true if there are unsaved changes
+     */
+    public boolean hasUnsavedChanges()
+    {
+        synchronized (stateLock)
+        {
+            return ! unsavedChanges.isEmpty() || ! savingChanges.isEmpty();
+        }
+    }
+
+
+    /**
+     * Schedule a background write of the unsaved changes, if none is scheduled yet
+     * Must be called while holding stateLock
+     */
+    private void scheduleSave()
+    {
+        if ( ! saveScheduled )
+        {
+            saveScheduled = true;
+            BackgroundExecutor.schedule(this::saveChanges, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        if ( saveHook == null )
+        {
+            saveHook = this::saveChanges;
+            DisableListener.onDisable(plugin, saveHook);
+        }
+    }
+
+
+    /**
+     * Apply the values that were set but are not in the live config yet, so a reload does not undo them
+     * The key handles are resolved again, so keys that were added during the reload get a value as well
+     * @param loaded a freshly loaded snapshot
+     * @return the snapshot including all unsaved changes
+     */
+    private ConfigSnapshot applyUnsavedChanges(ConfigSnapshot loaded)
+    {
+        List<Map.Entry<String, Map<String, Object>>> changes;
+
+        synchronized (stateLock)
+        {
+            changes = new ArrayList<Map.Entry<String, Map<String, Object>>>( savingChanges.entrySet() );
+            changes.addAll( unsavedChanges.entrySet() );
+        }
+
+        ValueTable contents = loaded.contents;
+
+        for (Map.Entry<String, Map<String, Object>> change : changes)
+            contents = contents.with(change.getKey(), change.getValue());
+
+        return loaded.withContents(contents, resolveKeys( contents ));
+    }
+
+
+    /**
+     * Split a value into the separate values of each of its paths
+     * @param path the full path of the value
+     * @param value the value, Maps and ConfigurationSections are split up
+     * @param leaves the map to which the values are added
+     */
+    private static void flatten(String path, Object value, Map<String, Object> leaves)
+    {
+        if (value instanceof ConfigurationSection)
+            value = ((ConfigurationSection) value).getValues( false );
+
+        if (value instanceof Map)
+        {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                flatten(path + "." + entry.getKey(), entry.getValue(), leaves);
+        }
+        else if (value != null)
+        {
+            leaves.put(path, value);
+        }
+    }
+
+
+    // ----------- //
+    // Key handles //
+    // ----------- //
+
+
+    /**
+     * Get a handle to the option at the given path
+     * The handle is bound to a fixed slot which is filled on every reload, reading it does not require a lookup
+     * Declare your keys once (for example in a field) and keep using them: they remain valid across reloads
+     * When the option is missing or not of the requested type, a sensible default is used (0, false, an empty String or null)
+     * @param path the path of the option
+     * @param type the type of the value at this path (Integer, String, List, ItemStack, ...)
+     * @param <T> the type of the value at this path
+     * @return a ConfigKey for the given path and type
+     */
+    public <T> ConfigKey<T> getKey(String path, Class<T> type)
+    {
+        return getKey(path, type, defaultValueOf( type ));
+    }
+
+
+    /**
+     * Get a handle to the option at the given path
+     * The handle is bound to a fixed slot which is filled on every reload, reading it does not require a lookup
+     * Declare your keys once (for example in a field) and keep using them: they remain valid across reloads
+     * If a key with the same path and type already exists, that key will be returned and the provided default is ignored
+     * @param path the path of the option
+     * @param type the type of the value at this path (Integer, String, List, ItemStack, ...)
+     * @param defaultValue the value to be used when the option is missing or not of the requested type
+     * @param <T> the type of the value at this path
+     * @return a ConfigKey for the given path and type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ConfigKey<T> getKey(String path, Class<T> type, T defaultValue)
+    {
+        Class<T> boxedType = (Class<T>) boxed( type );
+
+        ConfigKey<T> key;
+
+        synchronized (stateLock)
+        {
+            for (ConfigKey<?> existing : keys)
+            {
+                if ( existing.getPath().equals( path ) && existing.getType() == boxedType )
+                    return (ConfigKey<T>) existing;
+            }
+
+            key = new ConfigKey<T>(this, path, boxedType, defaultValue, keys.size());
+            keys.add( key );
+        }
+
+        // Make sure the new key has a value right away
+
+        ConfigSnapshot current;
+        do {
+            current = snapshot;
+        } while ( ! SNAPSHOT.compareAndSet(this, current, current.withKeyValues( resolveKeys( current.contents ) )) );
+
+        return key;
+    }
+
+
+    /**
+     * Resolve the value of each key handle in the given contents
+     * @param contents the loaded values
+     * @return an array with the value of each key, indexed by slot
+     */
+    private Object[] resolveKeys(ValueTable contents)
+    {
+        ConfigKey<?>[] current;
+
+        synchronized (stateLock)
+        {
+            current = keys.toArray( new ConfigKey<?>[0] );
+        }
+
+        Object[] values = new Object[ current.length ];
+
+        for (ConfigKey<?> key : current)
+        {
+            int index = contents.indexOf( key.getPath() );
+            Object value = contents.valueAs(index, key.getType());
+
+            if ( value != null )
+            {
+                values[ key.getSlot() ] = value;
+            }
+            else
+            {
+                Logger.debug(settings, () -> "Key " + key.getPath() + " was not found in " + fileName + " while expecting " + key.getType().getSimpleName() + " (and found: " + contents.typeNameAt( index ) + ")");
+                values[ key.getSlot() ] = key.getDefaultValue();
+            }
+        }
+
+        return values;
+    }
+
+
+    /**
+     * Get the wrapper class of a primitive type, other types are returned as is
+     * @param type any class
+     * @return the boxed type
+     */
+    private static Class<?> boxed(Class<?> type)
+    {
+        if (type == int.class)          return Integer.class;
+        if (type == long.class)         return Long.class;
+        if (type == double.class)       return Double.class;
+        if (type == boolean.class)      return Boolean.class;
+        return type;
+    }
+
+
+    /**
+     * Get the value the typed getters return when an option does not exist
+     * @param type the requested type
+     * @return zero, false, an empty String or null
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T defaultValueOf(Class<T> type)
+    {
+        Class<?> boxedType = boxed( type );
+        Object value = null;
+
+        if (boxedType == Integer.class)         value = 0;
+        else if (boxedType == Long.class)       value = 0L;
+        else if (boxedType == Double.class)     value = 0D;
+        else if (boxedType == Boolean.class)    value = false;
+        else if (boxedType == String.class)     value = "";
+
+        return (T) value;
+    }
+
+
+
     // ------------------- //
     // Settings management //
     // ------------------- //
@@ -284,19 +782,30 @@ public class ConfigAPI{
 
 
 
+    /**
+     * Get the live config file within the plugin's data folder
+     * @return the File, which may not exist yet
+     */
+    public File getLiveFile()
+    {
+        return new File(plugin.getDataFolder(), fileName);
+    }
+
+
     /**
      * Get a FileConfiguration containing all live configuration values
      * @return a YamlConfiguration, created from the live config file
      */
     public YamlConfiguration getLiveConfiguration()
     {
-        File file = new File(plugin.getDataFolder(), fileName);     // Get the file from the plugin's datafolder
+        File file = getLiveFile();                                  // Get the file from the plugin's datafolder
         return YamlConfiguration.loadConfiguration(file);           // Create a YAMLConfiguration from the found file
     }
 
 
     /**
      * Create a FileConfiguration of the default config file within the resources folder of the jar file
+     * This parses the resource on every call, ConfigAPI itself uses a cached version of the default config
      * @return YamlConfiguration
      */
     public YamlConfiguration getDefaultConfiguration()
@@ -321,24 +830,32 @@ public class ConfigAPI{
     }
 
 
+    /**
+     * Get the flattened default config
+     * The default config is parsed once and then shared by all ConfigAPI instances of this plugin until the plugin is disabled
+     * @return an immutable FlatConfig of the default config file
+     */
+    private FlatConfig getDefaultFlatConfig()
+    {
+        return DefaultConfigCache.get(plugin, fileName, this::parseDefaultConfiguration);
+    }
+
+
     /**
      * Any missing options of the live config are added and set to their default value
      * This will be generated when this method is called so you might want to avoid repeating this call too many times
+     * The default config is only parsed once, only the live config is read again on each call
      * @return YamlConfiguration (
      */
     public YamlConfiguration getConfiguration()
     {
         YamlConfiguration liveConfig = getLiveConfiguration();
-        YamlConfiguration defConfig = getDefaultConfiguration();
 
-        for (String key : defConfig.getKeys(true))
+        for (Map.Entry<String, Object> entry : getDefaultFlatConfig().getLeaves().entrySet())
         {
-            if ( ! defConfig.isConfigurationSection( key ))
+            if ( ! liveConfig.contains( entry.getKey() ) )
             {
-                if ( ! liveConfig.contains( key ) )
-                {
-                    liveConfig.set(key, defConfig.get( key ));
-                }
+                liveConfig.set(entry.getKey(), FlatConfig.thaw( entry.getValue() ));
             }
         }
 
@@ -354,63 +871,46 @@ public class ConfigAPI{
 
 
     /**
-     * Load all values from both provided configurations into memory
-     * The previous contents will be removed from memory
-     * @param liveConfig should be a YamlConfiguration of the config on the server
-     * @param defaultConfig should be a YamlConfiguration of the default config values. If null, no default values will be loaded. If not null, there will be no missing options
+     * Merge all values from both provided configurations into a new ValueTable
+     * @param liveConfig the flattened config on the server
+     * @param defaultConfig the flattened default config values. If null, no default values will be loaded. If not null, there will be no missing options
+     * @return the merged values
      */
-    private void loadFromConfigurations(YamlConfiguration liveConfig, @Nullable YamlConfiguration defaultConfig)
+    private ValueTable loadFromConfigurations(FlatConfig liveConfig, @Nullable FlatConfig defaultConfig)
     {
-        // If the default config should not be considered (for missing options): only load from the live values
+        ValueTable.Builder builder = new ValueTable.Builder(snapshot.contents.size(), getStorage());
 
         if (defaultConfig == null)
         {
-            loadFromConfigurations(liveConfig);
-            return;
-        }
+            // If the default config should not be considered (for missing options): only load from the live values
 
-        // Empty the contents
-
-        contents = new HashMap<String, Object>();
+            for (Map.Entry<String, Object> entry : liveConfig.getLeaves().entrySet())
+            {
+                builder.put(entry.getKey(), entry.getValue());
+            }
+        }
+        else
+        {
+            // Only load the options of the default config, use the live value wherever it exists
 
-        // Load the new contents
+            Map<String, Object> liveValues = liveConfig.getLeaves();
 
-        for (String path : defaultConfig.getKeys(true))
-        {
-            if ( ! defaultConfig.isConfigurationSection( path ))
+            for (Map.Entry<String, Object> entry : defaultConfig.getLeaves().entrySet())
             {
-                if ( liveConfig.contains(path) )
+                String path = entry.getKey();
+
+                if ( liveValues.containsKey( path ) )
                 {
-                    contents.put(path, liveConfig.get(path) );
+                    builder.put(path, liveValues.get( path ));
                 }
                 else
                 {
-                    contents.put(path, defaultConfig.get(path));
+                    builder.put(path, entry.getValue());
                 }
             }
         }
-    }
 
-
-    /**
-     * Load all values from the provided configuration into memory
-     * Earlier loaded values will be deleted
-     * @param liveConfig should be a YamlConfiguration of the config on the server
-     */
-    private void loadFromConfigurations(YamlConfiguration liveConfig)
-    {
-
-        // Reset contents
-        contents = new HashMap<String, Object>();
-
-        // Load new contents
-        for (String path : liveConfig.getKeys(true))
-        {
-            if ( ! liveConfig.isConfigurationSection( path ))
-            {
-                contents.put( path, liveConfig.get( path ) );
-            }
-        }
+        return builder.build();
     }
 
 
@@ -420,30 +920,474 @@ public class ConfigAPI{
      * When reportMissingOptions is enabled:     missing options will be reported to the console
      * When reportRedundantOptions is enabled:   redundant options will be reported to the console
      * When reportNewConfig is enabled:          creating a new config will be reported to the console (meaning: when no live config exists yet)
+     * When validateSchema is enabled:           live values are converted to the type of their default value where needed, invalid values are replaced by their default and reported
+     * Each file is parsed and flattened exactly once, every stage below works on those flattened configs
+     * The new values are published all at once: other threads either see the old or the new values, never a mix
+     * Nothing happens when the live config and the settings did not change since the last reload, use ConfigAPI#reloadContents(boolean) to force a reload
+     * The time spent in each stage is available through ConfigAPI#getLastReloadTimings()
      */
     public void reloadContents() {
+        reloadContents(false);
+    }
 
-        copyDefConfigIfNeeded();        // Copy a new config if none exists yet
 
-        YamlConfiguration liveConfiguration;        // Live config values
-        YamlConfiguration defConfiguration = null;  // Default config values
+    /**
+     * (re)Load all values from the live config
+     * This behaves like ConfigAPI#reloadContents() but can bypass the check for changes
+     * @param force true to reload even if the live config did not change
+     */
+    public void reloadContents(boolean force) {
 
-        // Get the live config
-        liveConfiguration = getLiveConfiguration();
+        // Cleanup tasks that were added before the plugin was enabled (eg. in onLoad) need a listener once it is
+        DisableListener.register( plugin );
 
-        // If missing/redundant options need to be reported on reload:
-        if (settings.getReportMissingOptions())
-            reportMissingOptions();
+        ConfigChange change;
 
-        // If enabled: add the default values to the live configuration where options are missing
-        if ( settings.getLoadDefaults() ) {
-            defConfiguration = getDefaultConfiguration();
-            loadFromConfigurations( liveConfiguration, defConfiguration);
+        synchronized (reloadLock)
+        {
+            boolean collectMetrics = settings.getCollectMetrics();
+            if (collectMetrics)
+                metrics.register(plugin, fileName);
+
+            if ( ! force && isUpToDate( snapshot ))
+            {
+                skippedReloads++;
+                if (collectMetrics)
+                    metrics.skippedReload();
+                return;
+            }
+
+            ConfigSnapshot loaded = loadSnapshot();
+            ConfigSnapshot previous;
+            ConfigSnapshot next;
+
+            do {
+                previous = snapshot;
+                next = applyUnsavedChanges( loaded );
+            } while ( ! SNAPSHOT.compareAndSet(this, previous, next) );
+
+            performedReloads++;
+            if (collectMetrics)
+                metrics.reload(next.timings, next.liveFingerprint.getSize());
+
+            change = changeBetween(previous.contents, next.contents);
         }
-        else
-        {   // If defaults should not be loaded: only provide the live config
-            loadFromConfigurations( liveConfiguration );
+
+        // Listeners run without holding the lock, so a listener that waits for another thread cannot block reloads or set() forever
+
+        notifyListeners( change );
+    }
+
+
+    /**
+     * Check whether a snapshot still reflects the live config and the current settings
+     * The size and modification time of the live config are checked first, its contents are only hashed when those are inconclusive
+     * @param current the snapshot to check
+     * @return true if reloading would produce the same contents
+     */
+    private boolean isUpToDate(ConfigSnapshot current)
+    {
+        return current != ConfigSnapshot.EMPTY
+                && current.settings == settings.getFlags()
+                && current.liveFingerprint.matches( getLiveFile() );
+    }
+
+
+    /**
+     * Get how often this instance was reloaded, and how often a reload was skipped because nothing changed
+     * @return the current reload statistics
+     */
+    public ReloadStatistics getReloadStatistics()
+    {
+        synchronized (reloadLock)
+        {
+            return new ReloadStatistics(performedReloads, skippedReloads);
+        }
+    }
+
+
+    /**
+     * Get the metrics of this instance: lookups and misses per type and per path, reload times and bytes read
+     * Nothing is counted unless collectMetrics is enabled in the settings. While it is, the same counters are available through JMX
+     * under be.dezijwegel.configapi:type=ConfigAPI,plugin=<plugin>,file=<file>, registered on the first reload after enabling it
+     * @return a copy of the current counters
+     */
+    public ConfigMetrics getMetrics()
+    {
+        return metrics.snapshot( snapshot.timings );
+    }
+
+
+    /**
+     * Count a getter call if metrics are enabled
+     * @param type the requested type, one of the constants of Metrics
+     * @param path the requested path
+     */
+    private void countLookup(int type, String path)
+    {
+        if (settings.getCollectMetrics())
+            metrics.lookup(type, path);
+    }
+
+
+    /**
+     * Count a getter call that returns the default value if metrics are enabled
+     * @param type the requested type, one of the constants of Metrics
+     * @param path the requested path
+     */
+    private void countMiss(int type, String path)
+    {
+        if (settings.getCollectMetrics())
+            metrics.miss(type, path);
+    }
+
+
+    /**
+     * (re)Load all values from the live config on a background thread
+     * This behaves like ConfigAPI#reloadContents() but will not block the calling thread (for example the main server thread)
+     * Until the returned future completes, all getters keep returning the previously loaded values
+     * @return a CompletableFuture that completes once the new values are available
+     */
+    public CompletableFuture<Void> reloadContentsAsync()
+    {
+        return reloadContentsAsync(false, BackgroundExecutor.get());
+    }
+
+
+    /**
+     * (re)Load all values from the live config on the given executor
+     * This behaves like ConfigAPI#reloadContents() but will not block the calling thread (for example the main server thread)
+     * Until the returned future completes, all getters keep returning the previously loaded values
+     * @param executor the executor that performs the reload
+     * @return a CompletableFuture that completes once the new values are available
+     */
+    public CompletableFuture<Void> reloadContentsAsync(Executor executor)
+    {
+        return reloadContentsAsync(false, executor);
+    }
+
+
+    /**
+     * (re)Load all values from the live config on the given executor
+     * This behaves like ConfigAPI#reloadContents(boolean) but will not block the calling thread (for example the main server thread)
+     * Until the returned future completes, all getters keep returning the previously loaded values
+     * @param force true to reload even if the live config did not change
+     * @param executor the executor that performs the reload
+     * @return a CompletableFuture that completes once the new values are available
+     */
+    public CompletableFuture<Void> reloadContentsAsync(boolean force, Executor executor)
+    {
+        return CompletableFuture.runAsync(() -> reloadContents( force ), executor);
+    }
+
+
+    /**
+     * Parse, report and merge the config files into a new snapshot
+     * Should only be called while holding reloadLock
+     * @return the new snapshot, which has not been published yet
+     */
+    private ConfigSnapshot loadSnapshot()
+    {
+        copyDefConfigIfNeeded();        // Copy a new config if none exists yet
+
+        boolean reportMissing = settings.getReportMissingOptions();
+        boolean reportRedundant = reportMissing && settings.getReportRedundantOptions();
+        boolean loadDefaults = settings.getLoadDefaults();
+        boolean migrate = settings.getMigrateLiveConfig();
+        boolean validate = settings.getValidateSchema();
+
+        // Read the live file once: its contents are both fingerprinted and parsed
+
+        long start = System.nanoTime();
+
+        File liveFile = getLiveFile();
+        long lastModified = liveFile.lastModified();
+        byte[] liveBytes = readLiveFile( liveFile );
+        FileFingerprint liveFingerprint = liveBytes != null ? FileFingerprint.of(liveBytes, lastModified) : FileFingerprint.MISSING;
+
+        long usedSettings = settings.getFlags();
+
+        // If enabled: use the compiled snapshot of a previous load when none of the sources changed
+
+        BinarySnapshot.Key cacheKey = null;
+
+        if (settings.getUseBinaryCache())
+        {
+            cacheKey = new BinarySnapshot.Key(liveFingerprint.getSize(), liveFingerprint.getHash(), DefaultConfigCache.getSourceHash(plugin, fileName), usedSettings);
+            BinarySnapshot cached = BinarySnapshot.read(getBinaryCacheFile(), cacheKey, getStorage());
+
+            if (cached != null)
+            {
+                long read = System.nanoTime();
+
+                if (cached.missingOptions != null)
+                    reportFaultyOptions(true, cached.missingOptions);
+
+                if (cached.redundantOptions != null)
+                    reportFaultyOptions(false, cached.redundantOptions);
+
+                if ( ! cached.violations.isEmpty() )
+                    reportViolations( cached.violations );
+
+                long reported = System.nanoTime();
+
+                ReloadTimings timings = new ReloadTimings(read - start, 0, 0, 0, 0, reported - read, 0);
+                return new ConfigSnapshot(cached.contents, resolveKeys( cached.contents ), timings, liveFingerprint, usedSettings, null, cached.violations);
+            }
+        }
+
+        // Parse each source once
+        // If enabled: the streaming loader parses and flattens the live config in one go, YamlConfiguration is only used when it cannot handle the file
+
+        FlatConfig liveConfig = settings.getUseStreamingLoader() ? StreamingLoader.load(liveBytes, settings.getDeserializeLazily()) : null;
+        YamlConfiguration liveConfiguration = liveConfig == null ? parseLiveConfiguration( liveBytes ) : null;
+
+        long parsed = System.nanoTime();
+
+        // Flatten each source once, the default config is already cached in its flattened form
+
+        if (liveConfig == null)
+            liveConfig = FlatConfig.of( liveConfiguration );
+        FlatConfig defConfig = (reportMissing || loadDefaults || migrate || validate) ? getDefaultFlatConfig() : null;
+
+        long flattened = System.nanoTime();
+
+        // Find missing, redundant and changed options at once if they need to be reported or migrated
+        // A migrated live config with the same version as the default config is complete, comparing both files is skipped
+
+        boolean upToDate = migrate && ConfigMigrator.hasSameVersion(defConfig, liveConfig);
+        ConfigDiff diff = (reportMissing || migrate) && ! upToDate ? ConfigDiff.between(defConfig, liveConfig) : null;
+
+        long diffed = System.nanoTime();
+
+        // If enabled: write the missing options to the live config, they no longer have to be reported after that
+        // Options that could not be added are still reported
+
+        boolean migrated = false;
+        Map<String, Object> notMigrated = null;
+
+        if (migrate && diff != null && liveBytes != null)
+        {
+            ConfigMigrator.Result migration = migrateLiveConfig(liveFile, liveBytes, defConfig, liveConfig, diff);
+
+            if (migration != null && migration.text != null)
+            {
+                migrated = true;
+                notMigrated = migration.skipped.isEmpty() ? null : migration.skipped;
+                liveConfig = migration.config;
+                liveFingerprint = FileFingerprint.of(migration.text.getBytes( StandardCharsets.UTF_8 ), liveFile.lastModified());
+                if (cacheKey != null)
+                    cacheKey = new BinarySnapshot.Key(liveFingerprint.getSize(), liveFingerprint.getHash(), DefaultConfigCache.getSourceHash(plugin, fileName), usedSettings);
+            }
+        }
+
+        long updated = System.nanoTime();
+
+        Map<String, Object> missingOptions = reportMissing && diff != null ? (migrated ? notMigrated : diff.getMissing()) : null;
+        Map<String, Object> redundantOptions = reportRedundant && diff != null && ! (migrated && settings.getKeepRedundantAsComment()) ? diff.getRedundant() : null;
+
+        // If enabled: check every live value against the schema of the default config, once
+        // Values are converted to the type of their default value here, so the typed getters find the expected type
+
+        List<SchemaViolation> violations = Collections.emptyList();
+
+        if (validate)
+        {
+            ConfigSchema schema = DefaultConfigCache.getSchema(plugin, fileName, this::parseDefaultConfiguration);
+            ConfigSchema.Validation validation = schema.validate( liveConfig );
+
+            liveConfig = validation.config;
+            defConfig = schema.getDefaults();
+            violations = validation.violations;
+        }
+
+        long validated = System.nanoTime();
+
+        // Report them to the console
+
+        if (missingOptions != null)
+            reportFaultyOptions(true, missingOptions);
+
+        if (redundantOptions != null)
+            reportFaultyOptions(false, redundantOptions);
+
+        if ( ! violations.isEmpty() )
+            reportViolations( violations );
+
+        long reported = System.nanoTime();
+
+        // If enabled: add the default values to the live configuration where options are missing
+        ValueTable contents = loadFromConfigurations( liveConfig, loadDefaults ? defConfig : null );
+
+        long merged = System.nanoTime();
+
+        // If enabled: store the compiled result for the next load
+
+        if (cacheKey != null)
+            BinarySnapshot.write(getBinaryCacheFile(), cacheKey, contents, missingOptions, redundantOptions, violations);
+
+        ReloadTimings timings = new ReloadTimings(parsed - start, flattened - parsed, diffed - flattened, updated - diffed, validated - updated, reported - validated, merged - reported);
+
+        return new ConfigSnapshot(contents, resolveKeys( contents ), timings, liveFingerprint, usedSettings, diff, violations);
+    }
+
+
+    /**
+     * Add the missing options to the live config and, if enabled, comment out its redundant options
+     * The previous file is copied to the .backup folder first. Nothing is written while changes that were set are waiting to be saved
+     * Should only be called while holding reloadLock
+     * @param liveFile the live config file
+     * @param liveBytes the contents of the live config that were loaded
+     * @param defConfig the flattened default config
+     * @param liveConfig the flattened live config
+     * @param diff the differences between both files
+     * @return the migration (without text when nothing had to change), or null when the file was not migrated
+     */
+    private ConfigMigrator.Result migrateLiveConfig(File liveFile, byte[] liveBytes, FlatConfig defConfig, FlatConfig liveConfig, ConfigDiff diff)
+    {
+        // Values that are being saved rewrite the same file, these would otherwise undo each other
+
+        if ( hasUnsavedChanges() )
+            return null;
+
+        String defaultText = new String(DefaultConfigCache.readResource(plugin, fileName), StandardCharsets.UTF_8);
+        ConfigMigrator.Result migration = ConfigMigrator.migrate(new String(liveBytes, StandardCharsets.UTF_8), defaultText, defConfig, liveConfig, diff, settings.getKeepRedundantAsComment());
+
+        if (migration == null)
+        {
+            Logger.debug(settings, () -> fileName + " could not be migrated automatically, its missing options will be reported instead");
+            return null;
+        }
+
+        if (migration.text == null)
+            return migration;
+
+        File backup = new File(new File(plugin.getDataFolder(), ".backup"), fileName + "." + new SimpleDateFormat("yyyyMMdd-HHmmss").format( new Date() ) + ".bak");
+
+        try {
+            AtomicFileWriter.write(backup, liveBytes);
+            AtomicFileWriter.write(liveFile, migration.text.getBytes( StandardCharsets.UTF_8 ));
+        } catch (IOException ex) {
+            Logger.sendToConsole("Could not migrate " + fileName + ": " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+            return null;
         }
+
+        ChatColor color = settings.getUseColors() ? ChatColor.GREEN : null;
+
+        if (migration.addedOptions > 0)
+            Logger.sendToConsole(migration.addedOptions + " missing option(s) have been added to " + fileName + " with their default value", plugin, color);
+        if (migration.commentedOut > 0)
+            Logger.sendToConsole(migration.commentedOut + " redundant option(s) have been commented out in " + fileName, plugin, color);
+        Logger.sendToConsole("A copy of the previous " + fileName + " has been saved as .backup/" + backup.getName(), plugin, color);
+
+        return migration;
+    }
+
+
+    /**
+     * Get the file in which the compiled binary copy of the loaded values is kept
+     * @return the binary cache file within the plugin's data folder
+     */
+    private File getBinaryCacheFile()
+    {
+        return new File(new File(plugin.getDataFolder(), ".cache"), fileName + ".bin");
+    }
+
+
+    /**
+     * Read the contents of the live config file
+     * @param file the live config file
+     * @return the contents or null when the file does not exist or cannot be read
+     */
+    private byte[] readLiveFile(File file)
+    {
+        if ( ! file.isFile() )
+            return null;
+
+        try {
+            return Files.readAllBytes( file.toPath() );
+        } catch (IOException ex) {
+            Logger.sendToConsole("Cannot read " + fileName + ": " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+            return null;
+        }
+    }
+
+
+    /**
+     * Parse the contents of the live config file
+     * Behaves like YamlConfiguration#loadConfiguration(File): invalid contents result in an empty configuration
+     * @param contents the contents of the live config file, may be null
+     * @return the parsed YamlConfiguration
+     */
+    private YamlConfiguration parseLiveConfiguration(@Nullable byte[] contents)
+    {
+        YamlConfiguration config = new YamlConfiguration();
+
+        if (contents == null)
+            return config;
+
+        try {
+            config.loadFromString( new String(contents, StandardCharsets.UTF_8) );
+        } catch (InvalidConfigurationException ex) {
+            Logger.sendToConsole("Cannot load " + fileName + ": " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+        }
+
+        return config;
+    }
+
+
+    /**
+     * Parse the contents of the default config file
+     * Behaves like ConfigAPI#getDefaultConfiguration(): invalid contents result in an empty configuration
+     * @param contents the contents of the default config file
+     * @return the parsed YamlConfiguration
+     */
+    private YamlConfiguration parseDefaultConfiguration(byte[] contents)
+    {
+        YamlConfiguration config = new YamlConfiguration();
+
+        try {
+            config.loadFromString( new String(contents, StandardCharsets.UTF_8) );
+        } catch (InvalidConfigurationException ex) {
+            if (settings.getDoDebugLogging())
+            {
+                Logger.log("An error occurred while loading the default config values (see below)");
+                Logger.log(ex.getMessage());
+            }
+        }
+
+        return config;
+    }
+
+
+    /**
+     * Get the storage flags of ValueTable that match the current settings
+     * @return a combination of ValueTable#COMPACT_STORAGE and ValueTable#COMPACT_STRINGS
+     */
+    private int getStorage()
+    {
+        return (settings.getCompactStorage() ? ValueTable.COMPACT_STORAGE : 0) | (settings.getCompactStrings() ? ValueTable.COMPACT_STRINGS : 0);
+    }
+
+
+    /**
+     * Estimate the memory that the loaded paths and String values retain, and how much compact storage saves
+     * Every loaded value is visited, so this should not be called often
+     * @return the estimated sizes of the currently loaded values
+     */
+    public StorageStatistics getStorageStatistics()
+    {
+        return snapshot.contents.measure();
+    }
+
+
+    /**
+     * Get the time spent in each stage of the most recent call to ConfigAPI#reloadContents()
+     * @return the timings of the last reload, all zero if no reload has happened yet
+     */
+    public ReloadTimings getLastReloadTimings()
+    {
+        return snapshot.timings;
     }
 
 
@@ -494,6 +1438,205 @@ public class ConfigAPI{
 
 
 
+    // ------------- //
+    // File watching //
+    // ------------- //
+
+
+
+    /**
+     * Enable or disable automatic reloading when the live config is edited
+     * All instances share a single watcher thread. Bursts of writes are merged into a single check
+     * A background reload only happens when the contents of the file actually changed
+     * Watching stops automatically when the plugin is disabled
+     * @param watching true to start watching, false to stop
+     */
+    public void setWatching(boolean watching)
+    {
+        synchronized (stateLock)
+        {
+            if (watching == (watch != null))
+                return;
+
+            if ( ! watching )
+            {
+                watch.cancel();
+                watch = null;
+                return;
+            }
+
+            try {
+                watch = FileWatcher.watch(getLiveFile(), this::onLiveFileChanged);
+            } catch (IOException ex) {
+                Logger.sendToConsole("Cannot watch " + fileName + " for changes: " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+                return;
+            }
+
+            if ( disableHook == null )
+            {
+                disableHook = () -> setWatching(false);
+                DisableListener.onDisable(plugin, disableHook);
+            }
+        }
+    }
+
+
+    /**
+     * Get whether the live config is being watched for changes
+     * @return true if changes are picked up automatically
+     */
+    public boolean isWatching()
+    {
+        synchronized (stateLock)
+        {
+            return watch != null;
+        }
+    }
+
+
+    /**
+     * Stop using this instance: unsaved changes are written, watching stops, the metrics are unregistered from JMX
+     * and the cached default config of this file is dropped
+     * Afterwards nothing outside this instance refers to it anymore, so it can be garbage collected. Values can still be read
+     * Setting values or watching the file again registers the instance again
+     */
+    public void close()
+    {
+        saveChanges();
+        setWatching(false);
+        metrics.unregister();
+        DefaultConfigCache.evict(plugin, fileName);
+
+        synchronized (stateLock)
+        {
+            if (saveHook != null)
+                DisableListener.cancel(plugin, saveHook);
+            if (disableHook != null)
+                DisableListener.cancel(plugin, disableHook);
+
+            saveHook = null;
+            disableHook = null;
+        }
+    }
+
+
+    /**
+     * Called by the file watcher after the live config has been touched
+     * Reloads in the background if the contents differ from the loaded contents
+     */
+    private void onLiveFileChanged()
+    {
+        if (snapshot.liveFingerprint.matches( getLiveFile() ))
+            return;
+
+        if (settings.getDoDebugLogging())
+            Logger.log(fileName + " was changed, reloading its contents");
+
+        reloadContentsAsync();
+    }
+
+
+
+    // ---------------- //
+    // Change listeners //
+    // ---------------- //
+
+
+    /**
+     * Get notified whenever a reload adds, removes or changes the value of a path
+     * Listeners are called on the thread that performed the reload, which may be a background thread, after the new values were published
+     * @param path the full path of a value
+     * @param listener the listener to call
+     */
+    public void addListener(String path, ConfigListener listener)
+    {
+        listeners.add( new Subscription(path, false, listener) );
+    }
+
+
+    /**
+     * Get notified whenever a reload adds, removes or changes any value within a section
+     * All changes within the section are passed in a single call per reload
+     * Listeners are called on the thread that performed the reload, which may be a background thread, after the new values were published
+     * @param section the full path of a section, use an empty String to be notified of every change
+     * @param listener the listener to call
+     */
+    public void addSectionListener(String section, ConfigListener listener)
+    {
+        listeners.add( new Subscription(section, true, listener) );
+    }
+
+
+    /**
+     * Stop notifying a listener, all of its registrations are removed
+     * @param listener the listener to remove
+     */
+    public void removeListener(ConfigListener listener)
+    {
+        listeners.removeIf(subscription -> subscription.listener == listener);
+    }
+
+
+    /**
+     * Compute what changed between two reloads
+     * Nothing is computed when no listeners are registered
+     * @param previous the values before the reload
+     * @param current the values after the reload
+     * @return the changes, or null when nothing changed or nobody listens
+     */
+    private ConfigChange changeBetween(ValueTable previous, ValueTable current)
+    {
+        if (listeners.isEmpty() || previous == current)
+            return null;
+
+        ConfigChange change = ConfigChange.between(previous, current);
+        return change.isEmpty() ? null : change;
+    }
+
+
+    /**
+     * Call the listeners of the paths that were affected by a change
+     * Should be called without holding reloadLock
+     * @param change the changes, nothing happens when null
+     */
+    private void notifyListeners(ConfigChange change)
+    {
+        if (change == null)
+            return;
+
+        for (Subscription subscription : listeners)
+        {
+            ConfigChange relevant = subscription.section ? change.forSection( subscription.path ) : change.forPath( subscription.path );
+            if (relevant == null)
+                continue;
+
+            try {
+                subscription.listener.onChange( relevant );
+            } catch (Exception ex) {
+                Logger.sendToConsole("A listener of " + fileName + " could not handle a change of " + subscription.path + ": " + ex.getMessage(), plugin, settings.getUseColors() ? ChatColor.RED : null);
+            }
+        }
+    }
+
+
+    private static final class Subscription {
+
+        // A listener and the path or section it is interested in
+
+        private final String path;                  // The full path of a value or section
+        private final boolean section;              // Whether every path within the section is included
+        private final ConfigListener listener;      // The listener to call
+
+
+        private Subscription(String path, boolean section, ConfigListener listener)
+        {
+            this.path = path;
+            this.section = section;
+            this.listener = listener;
+        }
+    }
+
+
     // --------------- //
     // Missing options //
     // --------------- //
@@ -524,31 +1667,50 @@ public class ConfigAPI{
      */
     public Map<String, Object> getMissingOptions(@Nullable YamlConfiguration liveConfig, @Nullable YamlConfiguration defaultConfig)
     {
-        Map<String, Object> missingOptions = new HashMap<String, Object>();
-
         // Get the current config on the server if none was provided
 
-        if (liveConfig == null)
-            liveConfig = getLiveConfiguration();
+        FlatConfig live = FlatConfig.of( liveConfig != null ? liveConfig : getLiveConfiguration() );
 
-        // Get the current default config if none was provided
+        // Get the (cached) default config if none was provided
 
-        if (defaultConfig == null)
-            defaultConfig = getDefaultConfiguration();
+        FlatConfig defaults = defaultConfig != null ? FlatConfig.of( defaultConfig ) : getDefaultFlatConfig();
 
         // Get the missing configuration options that are not configuration sections
 
-        for (String path : defaultConfig.getKeys(true))
-        {
-            if ( ! defaultConfig.isConfigurationSection(path) )
-            {
-                if ( !liveConfig.contains(path) ) {
-                    missingOptions.put(path, defaultConfig.get( path ));
-                }
-            }
-        }
+        return ConfigDiff.between(defaults, live).getMissing();
+    }
+
+
+    /**
+     * Compare the config on the server with the default config
+     * Missing, redundant and changed options are found in a single comparison, nothing is reported to the console
+     * @return the differences between both files as they are right now
+     */
+    public ConfigDiff getDiff()
+    {
+        return ConfigDiff.between(getDefaultFlatConfig(), FlatConfig.of( getLiveConfiguration() ));
+    }
+
+
+    /**
+     * Get the comparison that was made during the last reload, without comparing the files again
+     * A reload only compares the files when reportMissingOptions is enabled and the values were not read from the binary cache
+     * @return the differences at the time of the last reload, or null when that reload did not compare the files
+     */
+    public ConfigDiff getLastReloadDiff()
+    {
+        return snapshot.diff;
+    }
 
-        return missingOptions;
+
+    /**
+     * Get every live value that did not match the schema of the default config during the last reload (see Settings#setValidateSchema(boolean))
+     * Each value was either converted to the expected type, or replaced by its default value
+     * @return an unmodifiable List in file order, empty when every value was valid or the live config was not validated
+     */
+    public List<SchemaViolation> getViolations()
+    {
+        return snapshot.violations;
     }
 
 
@@ -558,20 +1720,12 @@ public class ConfigAPI{
      */
     public void reportMissingOptions()
     {
-        ConsoleCommandSender console = Bukkit.getConsoleSender();
-        YamlConfiguration liveConfig = getLiveConfiguration();
-        YamlConfiguration defConfig = getDefaultConfiguration();
-
-        Map<String, Object> missingOptions = getMissingOptions(liveConfig, defConfig);
+        ConfigDiff diff = getDiff();
 
-
-        reportFaultyOptions(true, missingOptions);
+        reportFaultyOptions(true, diff.getMissing());
 
         if (settings.getReportRedundantOptions())
-        {
-            Map<String, Object> redundantOptions = getMissingOptions(defConfig, liveConfig);
-            reportFaultyOptions(false, redundantOptions);
-        }
+            reportFaultyOptions(false, diff.getRedundant());
     }
 
 
@@ -602,7 +1756,6 @@ public class ConfigAPI{
             {
                 Logger.sendToConsole("Redundant options won't have any effect. Feel free to delete them.", plugin, settings.getUseColors() ? ChatColor.RED : null);
             }
-            YamlConfiguration defaultConfig = getDefaultConfiguration();
 
             for (Map.Entry<String, Object> entry : options.entrySet())
             {
@@ -610,6 +1763,8 @@ public class ConfigAPI{
 
                 // Handle value
                 Object value = entry.getValue();
+                if (value instanceof LazyObject)
+                    value = ((LazyObject) value).get();
 
                 // Change formatting if the setting is a String
                 if (value instanceof String)
@@ -637,4 +1792,20 @@ public class ConfigAPI{
             Logger.sendToConsole("No " + keyword + " options were found in " + fileName + "!", plugin, settings.getUseColors() ? ChatColor.GREEN : null);
         }
     }
+
+
+    /**
+     * Report every value that did not match the schema of the default config
+     * @param violations the violations, at least one
+     */
+    private void reportViolations(List<SchemaViolation> violations)
+    {
+        if (violations.size() == 1)
+            Logger.sendToConsole("An invalid option has been found in " + fileName + "!", plugin, settings.getUseColors() ? ChatColor.RED : null);
+        else
+            Logger.sendToConsole(violations.size() + " invalid options have been found in " + fileName + "!", plugin, settings.getUseColors() ? ChatColor.RED : null);
+
+        for (SchemaViolation violation : violations)
+            Logger.sendToConsole("Invalid option: " + violation.getMessage(), plugin, settings.getUseColors() ? ChatColor.DARK_RED : null);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+package be.dezijwegel.configapi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class ConfigChange {
+
+    // The difference between the values of two reloads: which paths were added, removed or got a different value
+    // Only the paths of values are included, sections themselves are never reported
+    // The old and new values of every path remain available through getOldValue() and getNewValue()
+
+    private final ValueTable previous;      // The values before the reload
+    private final ValueTable current;       // The values after the reload
+    private final List<String> added;       // Paths that only exist after the reload
+    private final List<String> removed;     // Paths that only existed before the reload
+    private final List<String> changed;     // Paths that exist in both, with a different value
+
+
+    private ConfigChange(ValueTable previous, ValueTable current, List<String> added, List<String> removed, List<String> changed)
+    {
+        this.previous = previous;
+        this.current = current;
+        this.added = Collections.unmodifiableList( added );
+        this.removed = Collections.unmodifiableList( removed );
+        this.changed = Collections.unmodifiableList( changed );
+    }
+
+
+    /**
+     * Compute the difference between two sets of loaded values
+     * @param previous the values before the reload
+     * @param current the values after the reload
+     * @return the changes, which may be empty
+     */
+    static ConfigChange between(ValueTable previous, ValueTable current)
+    {
+        List<String> added = new ArrayList<String>();
+        List<String> removed = new ArrayList<String>();
+        List<String> changed = new ArrayList<String>();
+
+        for (int i = 0; i < current.size(); i++)
+        {
+            String path = current.pathAt( i );
+            int old = previous.indexOf( path );
+
+            if (old < 0)
+                added.add( path );
+            else if ( ! current.sameValueAt(i, previous, old) )
+                changed.add( path );
+        }
+
+        for (int i = 0; i < previous.size(); i++)
+        {
+            if ( ! current.contains( previous.pathAt( i ) ))
+                removed.add( previous.pathAt( i ) );
+        }
+
+        return new ConfigChange(previous, current, added, removed, changed);
+    }
+
+
+    /**
+     * Compute the difference caused by replacing the value at a single path, without comparing every other path
+     * @param path the full path that was set
+     * @param previous the values before the change
+     * @param current the values after the change
+     * @return the changes, which may be empty
+     */
+    static ConfigChange at(String path, ValueTable previous, ValueTable current)
+    {
+        List<String> added = new ArrayList<String>();
+        List<String> removed = new ArrayList<String>();
+        List<String> changed = new ArrayList<String>();
+
+        // Only the path itself, every path within it and the values it replaced as a section can differ
+
+        Set<String> candidates = new LinkedHashSet<String>();
+        for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1))
+            candidates.add( path.substring(0, dot) );
+        candidates.add( path );
+        for (int entry : current.entriesWithin( path ))
+            candidates.add( current.pathAt( entry ) );
+        for (int entry : previous.entriesWithin( path ))
+            candidates.add( previous.pathAt( entry ) );
+
+        for (String candidate : candidates)
+        {
+            int before = previous.indexOf( candidate );
+            int after = current.indexOf( candidate );
+
+            if (before < 0 && after >= 0)
+                added.add( candidate );
+            else if (before >= 0 && after < 0)
+                removed.add( candidate );
+            else if (before >= 0 && ! current.sameValueAt(after, previous, before))
+                changed.add( candidate );
+        }
+
+        return new ConfigChange(previous, current, added, removed, changed);
+    }
+
+
+    // --------- //
+    // Filtering //
+    // --------- //
+
+
+    /**
+     * Get the changes of a single path
+     * @param path the full path of a value
+     * @return the changes of this path or null if it did not change
+     */
+    ConfigChange forPath(String path)
+    {
+        // Look the path up in both tables instead of searching the lists
+
+        int before = previous.indexOf( path );
+        int after = current.indexOf( path );
+
+        List<String> none = Collections.emptyList();
+        List<String> single = Collections.singletonList( path );
+
+        if (before < 0 && after >= 0)
+            return new ConfigChange(previous, current, single, none, none);
+        if (before >= 0 && after < 0)
+            return new ConfigChange(previous, current, none, single, none);
+        if (before >= 0 && ! current.sameValueAt(after, previous, before))
+            return new ConfigChange(previous, current, none, none, single);
+        return null;
+    }
+
+
+    /**
+     * Get the changes within a section
+     * @param section the full path of a section, an empty String includes every path
+     * @return the changes within this section or null if nothing within it changed
+     */
+    ConfigChange forSection(String section)
+    {
+        if (section.isEmpty())
+            return isEmpty() ? null : this;
+
+        String prefix = section + ".";
+
+        List<String> sectionAdded = filter(added, section, prefix);
+        List<String> sectionRemoved = filter(removed, section, prefix);
+        List<String> sectionChanged = filter(changed, section, prefix);
+
+        if (sectionAdded.isEmpty() && sectionRemoved.isEmpty() && sectionChanged.isEmpty())
+            return null;
+
+        return new ConfigChange(previous, current, sectionAdded, sectionRemoved, sectionChanged);
+    }
+
+
+    private static List<String> filter(List<String> paths, String section, String prefix)
+    {
+        List<String> result = new ArrayList<String>();
+        for (String path : paths)
+        {
+            if (path.equals( section ) || path.startsWith( prefix ))
+                result.add( path );
+        }
+        return result;
+    }
+
+
+    // ------------ //
+    // Getting data //
+    // ------------ //
+
+
+    /**
+     * Get the paths that did not exist before the reload
+     * @return an unmodifiable list of full paths
+     */
+    public List<String> getAdded()
+    {
+        return added;
+    }
+
+
+    /**
+     * Get the paths that no longer exist after the reload
+     * @return an unmodifiable list of full paths
+     */
+    public List<String> getRemoved()
+    {
+        return removed;
+    }
+
+
+    /**
+     * Get the paths that exist before and after the reload, but have a different value
+     * @return an unmodifiable list of full paths
+     */
+    public List<String> getChanged()
+    {
+        return changed;
+    }
+
+
+    /**
+     * Get every added, removed and changed path
+     * @return a new list of full paths
+     */
+    public List<String> getPaths()
+    {
+        List<String> paths = new ArrayList<String>(added.size() + removed.size() + changed.size());
+        paths.addAll( added );
+        paths.addAll( removed );
+        paths.addAll( changed );
+        return paths;
+    }
+
+
+    /**
+     * Check whether a path was added, removed or changed
+     * @param path the full path
+     * @return true if this path is part of the changes
+     */
+    public boolean contains(String path)
+    {
+        return added.contains( path ) || removed.contains( path ) || changed.contains( path );
+    }
+
+
+    /**
+     * Check whether nothing changed
+     * @return true if no path was added, removed or changed
+     */
+    public boolean isEmpty()
+    {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+
+    /**
+     * Get the value of a path before the reload
+     * @param path the full path
+     * @return the old value or null if it did not exist
+     */
+    public Object getOldValue(String path)
+    {
+        return previous.get( path );
+    }
+
+
+    /**
+     * Get the value of a path after the reload
+     * @param path the full path
+     * @return the new value or null if it was removed
+     */
+    public Object getNewValue(String path)
+    {
+        return current.get( path );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ConfigChange{added=" + added + ", removed=" + removed + ", changed=" + changed + "}";
+    }
+}
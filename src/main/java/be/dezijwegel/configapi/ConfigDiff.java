@@ -0,0 +1,254 @@
+package be.dezijwegel.configapi;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class ConfigDiff {
+
+    // The differences between a default config and a live config, found in one pass over the options of each file
+    // Both files are flattened once, after that every option is looked up in the other file with a single hash lookup
+    //
+    // Missing:         an option of the default config that is not in the live config
+    // Redundant:       an option of the live config that is not in the default config
+    // Type changed:    an option that exists in both files but holds another type of value in the live config,
+    //                  eg. 5.0 or "5" where the default config has 5, or a single option where the default config has a section
+
+    static final ConfigDiff EMPTY = new ConfigDiff(new LinkedHashMap<String, Object>(), new LinkedHashMap<String, Object>(), new LinkedHashMap<String, TypeChange>());
+
+    private final Map<String, Object> missing;              // Missing options and their default value, in default file order
+    private final Map<String, Object> redundant;            // Redundant options and their live value, in live file order
+    private final Map<String, TypeChange> typeChanged;      // Options with another type in the live config, in default file order
+
+
+    private ConfigDiff(Map<String, Object> missing, Map<String, Object> redundant, Map<String, TypeChange> typeChanged)
+    {
+        this.missing = Collections.unmodifiableMap( missing );
+        this.redundant = Collections.unmodifiableMap( redundant );
+        this.typeChanged = Collections.unmodifiableMap( typeChanged );
+    }
+
+
+    /**
+     * Compare two flattened configs
+     * @param defaults the default config, which is assumed to be complete
+     * @param live the live config
+     * @return the differences
+     */
+    static ConfigDiff between(FlatConfig defaults, FlatConfig live)
+    {
+        Map<String, Object> missing = new LinkedHashMap<String, Object>();
+        Map<String, Object> redundant = new LinkedHashMap<String, Object>();
+        Map<String, TypeChange> typeChanged = new LinkedHashMap<String, TypeChange>();
+
+        Map<String, Object> liveLeaves = live.getLeaves();
+
+        for (Map.Entry<String, Object> entry : defaults.getLeaves().entrySet())
+        {
+            String path = entry.getKey();
+            Object liveValue = liveLeaves.get( path );
+
+            if (liveValue != null)
+            {
+                String expected = typeOf( entry.getValue() );
+                String actual = typeOf( liveValue );
+
+                if ( ! expected.equals( actual ))
+                    typeChanged.put(path, new TypeChange(path, expected, actual, entry.getValue(), liveValue));
+            }
+            else if (live.contains( path ))
+            {
+                typeChanged.put(path, new TypeChange(path, typeOf( entry.getValue() ), SECTION, entry.getValue(), null));
+            }
+            else
+            {
+                missing.put(path, entry.getValue());
+            }
+        }
+
+        Map<String, Object> defaultLeaves = defaults.getLeaves();
+
+        for (Map.Entry<String, Object> entry : liveLeaves.entrySet())
+        {
+            String path = entry.getKey();
+
+            if (defaultLeaves.containsKey( path ))
+                continue;
+
+            if (defaults.contains( path ))
+                typeChanged.put(path, new TypeChange(path, SECTION, typeOf( entry.getValue() ), null, entry.getValue()));
+            else
+                redundant.put(path, entry.getValue());
+        }
+
+        return new ConfigDiff(missing, redundant, typeChanged);
+    }
+
+
+    // ----- //
+    // Types //
+    // ----- //
+
+
+    private static final String SECTION = "Section";
+
+
+    /**
+     * Get the name of the type of a value as it is compared between both files
+     * All whole numbers are an "Integer" and all decimal numbers a "Double", since YAML picks the size of a number by its value
+     * @param value any value of a flattened config
+     * @return the name of its type
+     */
+    static String typeOf(Object value)
+    {
+        if (value instanceof Integer || value instanceof Long || value instanceof BigInteger)
+            return "Integer";
+        if (value instanceof Double || value instanceof Float)
+            return "Double";
+        if (value instanceof String)
+            return "String";
+        if (value instanceof Boolean)
+            return "Boolean";
+        if (value instanceof List)
+            return "List";
+        if (value instanceof Map)
+            return "Map";
+        if (value instanceof LazyObject)
+            return ((LazyObject) value).getTypeName();
+        return value == null ? "nothing" : value.getClass().getSimpleName();
+    }
+
+
+    // ------- //
+    // Results //
+    // ------- //
+
+
+    /**
+     * Get the options of the default config that are not in the live config
+     * @return an unmodifiable Map of paths to default values, in the order of the default config
+     */
+    public Map<String, Object> getMissing()
+    {
+        return missing;
+    }
+
+
+    /**
+     * Get the options of the live config that are not in the default config
+     * @return an unmodifiable Map of paths to live values, in the order of the live config
+     */
+    public Map<String, Object> getRedundant()
+    {
+        return redundant;
+    }
+
+
+    /**
+     * Get the options that hold another type of value in the live config than in the default config
+     * @return an unmodifiable Map of paths to changes
+     */
+    public Map<String, TypeChange> getTypeChanged()
+    {
+        return typeChanged;
+    }
+
+
+    /**
+     * Check whether both configs have the same options, with the same types
+     * @return true if nothing is missing, redundant or of another type
+     */
+    public boolean isEmpty()
+    {
+        return missing.isEmpty() && redundant.isEmpty() && typeChanged.isEmpty();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ConfigDiff{missing=" + missing.keySet() + ", redundant=" + redundant.keySet() + ", typeChanged=" + typeChanged.values() + "}";
+    }
+
+
+    public static final class TypeChange {
+
+        // An option that exists in both configs, but with another type of value
+
+        private final String path;
+        private final String expectedType;      // The type in the default config
+        private final String actualType;        // The type in the live config
+        private final Object defaultValue;      // The value in the default config, null when it is a section
+        private final Object liveValue;         // The value in the live config, null when it is a section
+
+
+        private TypeChange(String path, String expectedType, String actualType, Object defaultValue, Object liveValue)
+        {
+            this.path = path;
+            this.expectedType = expectedType;
+            this.actualType = actualType;
+            this.defaultValue = defaultValue;
+            this.liveValue = liveValue;
+        }
+
+
+        /**
+         * Get the full path of the option
+         * @return the path
+         */
+        public String getPath()
+        {
+            return path;
+        }
+
+
+        /**
+         * Get the type of the option in the default config
+         * @return a type name: Integer, Double, String, Boolean, List, Map, Section or a class name
+         */
+        public String getExpectedType()
+        {
+            return expectedType;
+        }
+
+
+        /**
+         * Get the type of the option in the live config
+         * @return a type name: Integer, Double, String, Boolean, List, Map, Section or a class name
+         */
+        public String getActualType()
+        {
+            return actualType;
+        }
+
+
+        /**
+         * Get the value of the option in the default config
+         * @return the value or null when the default config has a section at this path
+         */
+        public Object getDefaultValue()
+        {
+            return defaultValue;
+        }
+
+
+        /**
+         * Get the value of the option in the live config
+         * Serialized objects that are loaded lazily are deserialized by this call
+         * @return the value or null when the live config has a section at this path
+         */
+        public Object getLiveValue()
+        {
+            return liveValue instanceof LazyObject ? ((LazyObject) liveValue).get() : liveValue;
+        }
+
+
+        @Override
+        public String toString()
+        {
+            return path + " (" + expectedType + " -> " + actualType + ")";
+        }
+    }
+}
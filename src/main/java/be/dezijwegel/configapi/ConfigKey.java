@@ -0,0 +1,94 @@
+package be.dezijwegel.configapi;
+
+public final class ConfigKey<T> {
+
+    // A ConfigKey is a handle to a single option in a config file
+    // Each key is bound to a fixed slot of its ConfigAPI instance, which is (re)filled on every reload
+    // Reading a key is a field load and an array access: the path is only hashed and compared once per reload
+
+    private final ConfigAPI api;            // The instance that owns the slot of this key
+    private final String path;              // The path of the option this key points to
+    private final Class<T> type;            // The type that is expected at this path
+    private final T defaultValue;           // The value that is used when the option is missing or of the wrong type
+    private final int slot;                 // The index of this key's value in the key values of each snapshot
+
+
+    /**
+     * Keys are created through ConfigAPI#getKey(String, Class) and should not be created manually
+     * @param api the instance that owns this key
+     * @param path the path of the option
+     * @param type the expected type of the option
+     * @param defaultValue the fallback value
+     * @param slot the slot in which this key's value is stored
+     */
+    ConfigKey(ConfigAPI api, String path, Class<T> type, T defaultValue, int slot)
+    {
+        this.api = api;
+        this.path = path;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.slot = slot;
+    }
+
+
+    /**
+     * Get the current value of this key
+     * This value is updated on every reload, the key itself remains valid
+     * @return the loaded value or the default value when the option does not exist or is not of the expected type
+     */
+    @SuppressWarnings("unchecked")
+    public T get()
+    {
+        return (T) api.snapshot.keyValues[slot];
+    }
+
+
+    /**
+     * Get the path of the option this key points to
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+
+    /**
+     * Get the type that is expected at this key's path
+     * @return the type of this key
+     */
+    public Class<T> getType()
+    {
+        return type;
+    }
+
+
+    /**
+     * Get the value that is used when the option is missing or not of the expected type
+     * @return the default value
+     */
+    public T getDefaultValue()
+    {
+        return defaultValue;
+    }
+
+
+    /**
+     * Get the slot of this key within its ConfigAPI instance
+     * @return the slot index
+     */
+    int getSlot()
+    {
+        return slot;
+    }
+
+
+    /**
+     * Get the instance that manages this key
+     * @return the ConfigAPI instance
+     */
+    public ConfigAPI getConfigAPI()
+    {
+        return api;
+    }
+}
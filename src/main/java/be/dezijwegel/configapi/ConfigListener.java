@@ -0,0 +1,17 @@
+package be.dezijwegel.configapi;
+
+@FunctionalInterface
+public interface ConfigListener {
+
+    // Gets notified when a reload changes the values this listener was registered for
+    // Each registration of a listener is called at most once per reload, with every relevant change of that reload in one batch
+    // A listener that is registered for several paths or sections is called once for each of them that changed
+
+    /**
+     * Handle the changes of a reload
+     * This is called on the thread that performed the reload, which may be a background thread
+     * No lock of ConfigAPI is held during this call, so it is safe to wait for another thread (eg. the main thread) here
+     * @param change the added, removed and changed paths this listener was registered for
+     */
+    void onChange(ConfigChange change);
+}
@@ -0,0 +1,221 @@
+package be.dezijwegel.configapi;
+
+import java.util.Collections;
+import java.util.Map;
+
+public final class ConfigMetrics {
+
+    // A copy of the metrics of one ConfigAPI instance at a single moment, see ConfigAPI#getMetrics()
+    // Counters only change while collectMetrics is enabled, everything is zero when it never was
+
+    private final Map<String, Long> lookupsPerType;     // Getter calls, by type name
+    private final Map<String, Long> missesPerType;      // Getter calls that returned the default value, by type name
+    private final Map<String, Long> lookupsPerPath;     // Getter calls, by path, highest first
+    private final Map<String, Long> missesPerPath;      // Misses, by path, highest first
+    private final long reloads;                         // Reloads that parsed the live config
+    private final long skippedReloads;                  // Reloads that were skipped because nothing changed
+    private final long parseNanos;                      // Time spent parsing and flattening, over all reloads
+    private final long diffNanos;                       // Time spent finding missing and redundant options, over all reloads
+    private final long migrateNanos;                    // Time spent migrating the live config, over all reloads
+    private final long validateNanos;                   // Time spent validating the live config against the schema, over all reloads
+    private final long mergeNanos;                      // Time spent merging, over all reloads
+    private final long bytesRead;                       // Bytes read from the live config, over all reloads
+    private final ReloadTimings lastReload;             // The timings of the most recent reload
+
+
+    ConfigMetrics(Map<String, Long> lookupsPerType, Map<String, Long> missesPerType, Map<String, Long> lookupsPerPath, Map<String, Long> missesPerPath,
+                  long reloads, long skippedReloads, long parseNanos, long diffNanos, long migrateNanos, long validateNanos, long mergeNanos, long bytesRead, ReloadTimings lastReload)
+    {
+        this.lookupsPerType = Collections.unmodifiableMap( lookupsPerType );
+        this.missesPerType = Collections.unmodifiableMap( missesPerType );
+        this.lookupsPerPath = Collections.unmodifiableMap( lookupsPerPath );
+        this.missesPerPath = Collections.unmodifiableMap( missesPerPath );
+        this.reloads = reloads;
+        this.skippedReloads = skippedReloads;
+        this.parseNanos = parseNanos;
+        this.diffNanos = diffNanos;
+        this.migrateNanos = migrateNanos;
+        this.validateNanos = validateNanos;
+        this.mergeNanos = mergeNanos;
+        this.bytesRead = bytesRead;
+        this.lastReload = lastReload;
+    }
+
+
+    // ------- //
+    // Lookups //
+    // ------- //
+
+
+    /**
+     * Get the amount of getter calls per requested type
+     * The types are String, Message, Integer, Boolean, Double, Long, ItemStack and Object
+     * @return an unmodifiable map of type names to counts
+     */
+    public Map<String, Long> getLookupsPerType()
+    {
+        return lookupsPerType;
+    }
+
+
+    /**
+     * Get the amount of getter calls per requested type that did not find an option of that type
+     * @return an unmodifiable map of type names to counts
+     */
+    public Map<String, Long> getMissesPerType()
+    {
+        return missesPerType;
+    }
+
+
+    /**
+     * Get the amount of getter calls per path, the most used paths come first
+     * Only the first 1024 different paths are counted
+     * @return an unmodifiable map of paths to counts
+     */
+    public Map<String, Long> getLookupsPerPath()
+    {
+        return lookupsPerPath;
+    }
+
+
+    /**
+     * Get the amount of misses per path, the most missed paths come first
+     * A miss is a getter call for an option that does not exist or is not of the requested type
+     * Only the first 1024 different paths are counted
+     * @return an unmodifiable map of paths to counts
+     */
+    public Map<String, Long> getMissesPerPath()
+    {
+        return missesPerPath;
+    }
+
+
+    /**
+     * Get the amount of getter calls
+     * @return the sum over all types
+     */
+    public long getTotalLookups()
+    {
+        long total = 0;
+        for (long count : lookupsPerType.values())
+            total += count;
+        return total;
+    }
+
+
+    /**
+     * Get the amount of getter calls that did not find an option of the requested type
+     * @return the sum over all types
+     */
+    public long getTotalMisses()
+    {
+        long total = 0;
+        for (long count : missesPerType.values())
+            total += count;
+        return total;
+    }
+
+
+    // ------- //
+    // Reloads //
+    // ------- //
+
+
+    /**
+     * Get the amount of reloads that parsed the live config
+     * @return the amount of performed reloads
+     */
+    public long getReloads()
+    {
+        return reloads;
+    }
+
+
+    /**
+     * Get the amount of reloads that were skipped because nothing changed
+     * @return the amount of skipped reloads
+     */
+    public long getSkippedReloads()
+    {
+        return skippedReloads;
+    }
+
+
+    /**
+     * Get the time spent parsing and flattening the config files, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    public long getParseNanos()
+    {
+        return parseNanos;
+    }
+
+
+    /**
+     * Get the time spent finding missing and redundant options, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    public long getDiffNanos()
+    {
+        return diffNanos;
+    }
+
+
+    /**
+     * Get the time spent migrating the live config, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    public long getMigrateNanos()
+    {
+        return migrateNanos;
+    }
+
+
+    /**
+     * Get the time spent validating the live config against the schema of the default config, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    public long getValidateNanos()
+    {
+        return validateNanos;
+    }
+
+
+    /**
+     * Get the time spent merging the live and default values, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    public long getMergeNanos()
+    {
+        return mergeNanos;
+    }
+
+
+    /**
+     * Get the amount of bytes read from the live config, summed over all reloads
+     * @return the amount of bytes
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+
+    /**
+     * Get the time spent in each stage of the most recent reload
+     * @return the timings, all zero if no reload has happened yet
+     */
+    public ReloadTimings getLastReload()
+    {
+        return lastReload;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ConfigMetrics{lookups=" + getTotalLookups() + ", misses=" + getTotalMisses() + ", reloads=" + reloads + ", skippedReloads=" + skippedReloads
+                + ", parse=" + parseNanos + "ns, diff=" + diffNanos + "ns, migrate=" + migrateNanos + "ns, validate=" + validateNanos + "ns, merge=" + mergeNanos + "ns, bytesRead=" + bytesRead + "}";
+    }
+}
@@ -0,0 +1,105 @@
+package be.dezijwegel.configapi;
+
+import java.util.Map;
+
+public interface ConfigMetricsMXBean {
+
+    // The metrics of one ConfigAPI instance as they are shown through JMX
+    // Registered as be.dezijwegel.configapi:type=ConfigAPI,plugin=<plugin>,file=<file> once collectMetrics is enabled
+
+    /**
+     * Get the amount of times a getter was called
+     * @return the amount of lookups
+     */
+    long getTotalLookups();
+
+
+    /**
+     * Get the amount of getter calls for a missing option or an option of another type
+     * @return the amount of misses
+     */
+    long getTotalMisses();
+
+
+    /**
+     * Get the amount of getter calls per requested type (String, Integer, ...)
+     * @return the amount of lookups by type name
+     */
+    Map<String, Long> getLookupsPerType();
+
+
+    /**
+     * Get the amount of misses per path
+     * @return the amount of misses by path
+     */
+    Map<String, Long> getMissesPerPath();
+
+
+    /**
+     * Get the paths that are looked up most often
+     * @return the amount of lookups by path, for the most used paths only
+     */
+    Map<String, Long> getHottestPaths();
+
+
+    /**
+     * Get the amount of reloads that parsed the live config
+     * @return the amount of performed reloads
+     */
+    long getReloads();
+
+
+    /**
+     * Get the amount of reloads that were skipped because nothing changed
+     * @return the amount of skipped reloads
+     */
+    long getSkippedReloads();
+
+
+    /**
+     * Get the time spent parsing and flattening, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    long getParseNanos();
+
+
+    /**
+     * Get the time spent finding missing and redundant options, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    long getDiffNanos();
+
+
+    /**
+     * Get the time spent migrating the live config, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    long getMigrateNanos();
+
+
+    /**
+     * Get the time spent validating the live config against the schema of the default config, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    long getValidateNanos();
+
+
+    /**
+     * Get the time spent merging the live and default values, summed over all reloads
+     * @return the time in nanoseconds
+     */
+    long getMergeNanos();
+
+
+    /**
+     * Get the amount of bytes read from the live config, summed over all reloads
+     * @return the amount of bytes
+     */
+    long getBytesRead();
+
+
+    /**
+     * Set every counter back to zero
+     */
+    void reset();
+}
@@ -0,0 +1,570 @@
+package be.dezijwegel.configapi;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+final class ConfigMigrator {
+
+    // Brings a live config up to date with the default config by editing its text, so every comment and all formatting of the server owner is kept
+    // Both files are outlined line by line: which lines belong to which option or section (its comments included)
+    // Missing options are then copied from the default file, comments included, to the position they have in the default file.
+    // Redundant options can be commented out and the version option is set to the version of the default config
+    // A missing option whose section is a single value or a flow style section in the live config is skipped, the version is then left as it is
+    // so the next reload compares both files again and the skipped options keep being reported
+    // The new file is built in one pass over the lines of the live config
+    //
+    // Only block style YAML is understood (which is what Bukkit writes). When a file uses something else,
+    // or when the result does not load to exactly the expected values, nothing is migrated and the options are reported as usual
+
+    static final String VERSION_PATH = "config-version";        // The option that holds the version of a config file
+
+
+    private ConfigMigrator() {}
+
+
+    /**
+     * Check whether a live config has the same version as the default config
+     * Such a live config was migrated (or copied) before, so it is known to contain every option
+     * @param defaults the default config
+     * @param live the live config
+     * @return true if both have a version and it is the same
+     */
+    static boolean hasSameVersion(FlatConfig defaults, FlatConfig live)
+    {
+        Object version = defaults.getLeaves().get( VERSION_PATH );
+        return version != null && version.equals( live.getLeaves().get( VERSION_PATH ) );
+    }
+
+
+    /**
+     * Add the missing options of a live config and optionally comment out its redundant options
+     * @param liveText the contents of the live config
+     * @param defaultText the contents of the default config
+     * @param defaults the flattened default config
+     * @param live the flattened live config
+     * @param diff the differences between both configs
+     * @param commentOutRedundant true to comment out redundant options
+     * @return the migration, or null when the live config cannot be migrated safely
+     */
+    static Result migrate(String liveText, String defaultText, FlatConfig defaults, FlatConfig live, ConfigDiff diff, boolean commentOutRedundant)
+    {
+        Outline liveOutline = new Outline( liveText );
+        Outline defaultOutline = new Outline( defaultText );
+
+        if ( ! liveOutline.valid || ! defaultOutline.valid )
+            return null;
+
+        Map<Integer, List<String>> inserts = new HashMap<Integer, List<String>>();     // Lines to add, by the index of the line they follow (-1 for the start)
+        Map<Integer, String> replaced = new HashMap<Integer, String>();                // Changed lines, by index
+        Set<String> inserted = new LinkedHashSet<String>();                             // The paths of the inserted options and sections
+        Set<String> commentedOut = new LinkedHashSet<String>();                         // The paths of the commented out options and sections
+        Map<String, Object> skipped = new LinkedHashMap<String, Object>();              // The missing options that could not be inserted, with their default value
+        int added = 0;
+
+        // Copy the missing options from the default config
+
+        for (String path : diff.getMissing().keySet())
+        {
+            Node node = defaultOutline.nodes.get( path );
+            if (node == null)
+                return null;
+
+            // Insert the highest section that does not exist in the live config as a whole
+
+            while (node.parent != defaultOutline.root && ! liveOutline.nodes.containsKey( node.parent.path ))
+                node = node.parent;
+
+            Node liveParent = node.parent == defaultOutline.root ? liveOutline.root : liveOutline.nodes.get( node.parent.path );
+            if ( ! liveParent.isSection() )
+            {
+                // The live config has a single option (or a flow style section) where the default config has a section: leave it to the server owner
+                skipped.put(path, diff.getMissing().get( path ));
+                continue;
+            }
+
+            added++;
+            if ( ! inserted.add( node.path ))
+                continue;
+
+            int anchor = findInsertionPoint(node, liveOutline, liveParent);
+            int indent = liveParent.childIndent >= 0 ? liveParent.childIndent : (liveParent == liveOutline.root ? 0 : liveParent.indent + 2);
+
+            List<String> block = inserts.computeIfAbsent(anchor, line -> new ArrayList<String>());
+            if (node.commentStart > 0 && defaultOutline.lines[ node.commentStart - 1 ].trim().isEmpty())
+                block.add("");
+            for (int i = node.commentStart; i <= node.end; i++)
+                block.add( shift(defaultOutline.lines[i], indent - node.indent) );
+        }
+
+        // Set the version of the default config, unless some missing options are still missing after this migration
+
+        Node defaultVersion = defaultOutline.nodes.get( VERSION_PATH );
+        Node liveVersion = liveOutline.nodes.get( VERSION_PATH );
+
+        if (skipped.isEmpty() && defaultVersion != null && liveVersion != null && liveVersion.end == liveVersion.keyLine && ! liveVersion.isSection()
+                && ! defaultVersion.value.equals( liveVersion.value ))
+        {
+            String line = liveOutline.lines[ liveVersion.keyLine ];
+            replaced.put(liveVersion.keyLine, line.substring(0, liveVersion.colon + 1) + " " + defaultVersion.value);
+        }
+
+        // Comment out redundant options, whole sections at once when none of their options exist in the default config
+
+        if (commentOutRedundant)
+        {
+            for (String path : diff.getRedundant().keySet())
+            {
+                Node node = liveOutline.nodes.get( path );
+                if (node == null)
+                    return null;
+
+                while (node.parent != liveOutline.root && ! defaultOutline.nodes.containsKey( node.parent.path ))
+                    node = node.parent;
+
+                if ( ! commentedOut.add( node.path ))
+                    continue;
+
+                for (int i = node.keyLine; i <= node.end; i++)
+                {
+                    String line = liveOutline.lines[i];
+                    if ( ! isBlankOrComment( line ))
+                        replaced.put(i, line.substring(0, indentOf( line )) + "# " + line.substring( indentOf( line )));
+                }
+            }
+        }
+
+        if (inserts.isEmpty() && replaced.isEmpty())
+            return new Result(null, live, 0, 0, skipped);
+
+        // Build the new file in one pass over the live config
+
+        StringBuilder text = new StringBuilder( liveText.length() + 256 );
+        appendAll(text, inserts.get( -1 ), liveOutline.newLine);
+
+        for (int i = 0; i < liveOutline.lines.length; i++)
+        {
+            String line = replaced.get( i );
+            text.append( line != null ? line : liveOutline.lines[i] ).append( liveOutline.newLine );
+            appendAll(text, inserts.get( i ), liveOutline.newLine);
+        }
+
+        // Only use the result when it loads to the old values plus the added options
+
+        FlatConfig migrated = load( text.toString() );
+        if (migrated == null || ! isComplete(migrated, defaults, live, inserted, commentedOut))
+            return null;
+
+        return new Result(text.toString(), migrated, added, commentedOut.size(), skipped);
+    }
+
+
+    /**
+     * Find the line after which a missing option should be inserted: after the option that precedes it in the default config,
+     * or at the start of its section when none of the options before it exist in the live config
+     * @return the index of the line, -1 for the start of the file
+     */
+    private static int findInsertionPoint(Node missing, Outline live, Node liveParent)
+    {
+        List<Node> siblings = missing.parent.children;
+
+        for (int i = siblings.indexOf( missing ) - 1; i >= 0; i--)
+        {
+            Node previous = live.nodes.get( siblings.get(i).path );
+            if (previous != null)
+                return previous.end;
+        }
+
+        if (liveParent != live.root)
+            return liveParent.keyLine;
+
+        // At the top of the file: keep the comments that belong to the first option above that option
+
+        return liveParent.children.isEmpty() ? live.lines.length - 1 : liveParent.children.get(0).commentStart - 1;
+    }
+
+
+    private static void appendAll(StringBuilder text, List<String> lines, String newLine)
+    {
+        if (lines == null)
+            return;
+
+        for (String line : lines)
+            text.append( line ).append( newLine );
+    }
+
+
+    private static String shift(String line, int spaces)
+    {
+        if (line.trim().isEmpty())
+            return "";
+        if (spaces >= 0)
+            return repeat(' ', spaces) + line;
+        return line.substring( Math.min(-spaces, indentOf( line )) );
+    }
+
+
+    private static String repeat(char character, int amount)
+    {
+        StringBuilder result = new StringBuilder( amount );
+        for (int i = 0; i < amount; i++)
+            result.append( character );
+        return result.toString();
+    }
+
+
+    // ---------- //
+    // Validation //
+    // ---------- //
+
+
+    private static FlatConfig load(String text)
+    {
+        YamlConfiguration config = new YamlConfiguration();
+
+        try {
+            config.loadFromString( text );
+            return FlatConfig.of( config );
+        } catch (InvalidConfigurationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Check whether a migrated config contains every option of the live config (except those that were commented out)
+     * and every inserted option with its default value
+     */
+    private static boolean isComplete(FlatConfig migrated, FlatConfig defaults, FlatConfig live, Set<String> inserted, Set<String> commentedOut)
+    {
+        Map<String, Object> result = migrated.getLeaves();
+
+        for (Map.Entry<String, Object> entry : live.getLeaves().entrySet())
+        {
+            String path = entry.getKey();
+            if (path.equals( VERSION_PATH ) || isWithin(path, commentedOut))
+                continue;
+
+            Object value = entry.getValue();
+            if ( ! result.containsKey( path ) || ( ! (value instanceof LazyObject) && ! Objects.equals(value, result.get( path ))))
+                return false;
+        }
+
+        for (Map.Entry<String, Object> entry : defaults.getLeaves().entrySet())
+        {
+            if (isWithin(entry.getKey(), inserted) && ! Objects.equals(entry.getValue(), result.get( entry.getKey() )))
+                return false;
+        }
+
+        return true;
+    }
+
+
+    private static boolean isWithin(String path, Set<String> nodes)
+    {
+        for (String node : nodes)
+        {
+            if (path.equals( node ) || path.startsWith( node + "." ))
+                return true;
+        }
+        return false;
+    }
+
+
+    // ------- //
+    // Outline //
+    // ------- //
+
+
+    private static boolean isBlankOrComment(String line)
+    {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() || trimmed.startsWith("#");
+    }
+
+
+    private static boolean isListItem(String trimmed)
+    {
+        return trimmed.equals("-") || trimmed.startsWith("- ");
+    }
+
+
+    private static int indentOf(String line)
+    {
+        int indent = 0;
+        while (indent < line.length() && line.charAt( indent ) == ' ')
+            indent++;
+        return indent;
+    }
+
+
+    private static final class Outline {
+
+        // The options and sections of a YAML file, and the lines that belong to each of them
+
+        private final String[] lines;
+        private final String newLine;                                       // The line separator used by the file
+        private final Node root = new Node("", null, -1, -1, "", -1);       // Holds the top level options
+        private final Map<String, Node> nodes = new HashMap<String, Node>();   // Every option and section by path
+        private boolean valid = true;                                       // False when the file uses something that is not understood
+
+
+        private Outline(String text)
+        {
+            this.newLine = text.contains("\r\n") ? "\r\n" : "\n";
+
+            String[] split = text.split("\r?\n", -1);
+            int length = split.length > 0 && split[ split.length - 1 ].isEmpty() ? split.length - 1 : split.length;
+            this.lines = new String[ length ];
+            System.arraycopy(split, 0, lines, 0, length);
+
+            read();
+        }
+
+
+        private void read()
+        {
+            List<Node> ordered = new ArrayList<Node>();
+            Deque<Node> open = new ArrayDeque<Node>();      // The sections that can still get children, innermost first
+            open.push( root );
+
+            int i = 0;
+            while (i < lines.length)
+            {
+                String line = lines[i];
+
+                if (isBlankOrComment( line ) || line.trim().equals("---"))
+                {
+                    i++;
+                    continue;
+                }
+
+                int indent = indentOf( line );
+                String trimmed = line.trim();
+
+                if (line.startsWith("\t") || isListItem( trimmed ))
+                {
+                    valid = false;
+                    return;
+                }
+
+                while (open.peek() != root && open.peek().indent >= indent)
+                    open.pop();
+                Node parent = open.peek();
+
+                int colon = findColon( line, indent );
+                if (colon < 0)
+                {
+                    valid = false;
+                    return;
+                }
+
+                String key = unquote( line.substring(indent, colon).trim() );
+                String path = parent == root ? key : parent.path + "." + key;
+                Node node = new Node(path, parent, indent, i, valueOf( line.substring(colon + 1) ), colon);
+
+                if (nodes.put(path, node) != null)
+                {
+                    valid = false;
+                    return;
+                }
+
+                parent.children.add( node );
+                if (parent.childIndent < 0)
+                    parent.childIndent = indent;
+                ordered.add( node );
+
+                while (node.commentStart > 0 && isComment( lines[ node.commentStart - 1 ] ))
+                    node.commentStart--;
+
+                i++;
+
+                // Find the lines of the value, a key without a value starts a section unless a list follows
+
+                int next = nextContent( i );
+                boolean deeper = next >= 0 && indentOf( lines[next] ) > indent;
+                boolean list = next >= 0 && indentOf( lines[next] ) >= indent && isListItem( lines[next].trim() );
+
+                if (node.value.isEmpty() && deeper && ! list)
+                {
+                    open.push( node );
+                    node.section = true;
+                    continue;
+                }
+
+                while (i < lines.length)
+                {
+                    String content = lines[i];
+                    boolean partOfValue = isBlankOrComment( content )
+                            || indentOf( content ) > indent
+                            || (node.value.isEmpty() && indentOf( content ) == indent && isListItem( content.trim() ));
+
+                    if ( ! partOfValue )
+                        break;
+
+                    if ( ! isBlankOrComment( content ))
+                        node.end = i;
+                    i++;
+                }
+            }
+
+            // A section ends with the last line of its last option
+
+            for (int j = ordered.size() - 1; j >= 0; j--)
+            {
+                Node node = ordered.get(j);
+                if (node.parent != root)
+                    node.parent.end = Math.max(node.parent.end, node.end);
+            }
+        }
+
+
+        private int nextContent(int from)
+        {
+            for (int i = from; i < lines.length; i++)
+            {
+                if ( ! isBlankOrComment( lines[i] ))
+                    return i;
+            }
+            return -1;
+        }
+
+
+        private static boolean isComment(String line)
+        {
+            return line.trim().startsWith("#");
+        }
+
+
+        /**
+         * Find the colon that ends the key of a line
+         * @return its index in the line or -1 if the line has no simple key
+         */
+        private static int findColon(String line, int indent)
+        {
+            char first = line.charAt( indent );
+            int from = indent;
+
+            if (first == '\'' || first == '"')
+            {
+                from = line.indexOf(first, indent + 1);
+                if (from < 0)
+                    return -1;
+            }
+            else if (first == '?' || first == '&' || first == '*' || first == '!' || first == '{' || first == '[')
+            {
+                return -1;
+            }
+
+            for (int i = from; i < line.length(); i++)
+            {
+                char character = line.charAt(i);
+                if (character == '#' && i > indent && line.charAt(i - 1) == ' ')
+                    return -1;
+                if (character == ':' && (i + 1 == line.length() || line.charAt(i + 1) == ' '))
+                    return i;
+            }
+
+            return -1;
+        }
+
+
+        private static String unquote(String key)
+        {
+            if (key.length() >= 2 && (key.charAt(0) == '\'' || key.charAt(0) == '"') && key.charAt( key.length() - 1 ) == key.charAt(0))
+                return key.substring(1, key.length() - 1);
+            return key;
+        }
+
+
+        /**
+         * Get the text of an inline value, without its comment
+         */
+        private static String valueOf(String rest)
+        {
+            String value = rest.trim();
+            if (value.startsWith("#"))
+                return "";
+
+            int comment = value.indexOf(" #");
+            if (comment >= 0 && value.indexOf('\'') < 0 && value.indexOf('"') < 0)
+                value = value.substring(0, comment).trim();
+
+            return value;
+        }
+    }
+
+
+    private static final class Node {
+
+        // An option or section within an Outline
+
+        private final String path;
+        private final Node parent;                  // The section that contains it, the root for top level options
+        private final int indent;                   // The indentation of its key
+        private final int keyLine;                  // The line of its key
+        private final String value;                 // The text of its value on the key line, empty when the value starts on the next line
+        private final int colon;                    // The position of the colon after its key
+        private final List<Node> children = new ArrayList<Node>();
+        private int commentStart;                   // The first line of the comments right above it, or its key line
+        private int end;                            // The last line of its value or of its last option
+        private int childIndent = -1;               // The indentation of its options, -1 when it has none
+        private boolean section = false;
+
+
+        private Node(String path, Node parent, int indent, int keyLine, String value, int colon)
+        {
+            this.path = path;
+            this.parent = parent;
+            this.indent = indent;
+            this.keyLine = keyLine;
+            this.value = value;
+            this.colon = colon;
+            this.commentStart = keyLine;
+            this.end = keyLine;
+        }
+
+
+        private boolean isSection()
+        {
+            return section || parent == null;
+        }
+    }
+
+
+    // ------ //
+    // Result //
+    // ------ //
+
+
+    static final class Result {
+
+        // The outcome of a migration
+
+        final String text;                  // The new contents of the live config, null when nothing had to change
+        final FlatConfig config;            // The flattened new contents
+        final int addedOptions;             // The amount of missing options that were added
+        final int commentedOut;             // The amount of options and sections that were commented out
+        final Map<String, Object> skipped;  // The missing options that could not be added, with their default value
+
+
+        private Result(String text, FlatConfig config, int addedOptions, int commentedOut, Map<String, Object> skipped)
+        {
+            this.text = text;
+            this.config = config;
+            this.addedOptions = addedOptions;
+            this.commentedOut = commentedOut;
+            this.skipped = skipped;
+        }
+    }
+}
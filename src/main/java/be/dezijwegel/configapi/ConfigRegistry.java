@@ -0,0 +1,214 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.BackgroundExecutor;
+import be.dezijwegel.configapi.utility.Logger;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ConfigRegistry {
+
+    // Loads a group of config files at the same time, one ConfigAPI instance per file
+    // Every file is loaded on its own thread of a shared ForkJoinPool, so a plugin with many files does not load them one after the other
+    // All instances share the same Settings, the registry always loads its files regardless of the autoLoadValues setting
+
+    private final Map<String, ConfigAPI> instances;                                     // Every instance by file name, in the order they were given
+    private final Map<String, Long> loadNanos = new ConcurrentHashMap<String, Long>();  // The time the last load of each file took
+
+
+    private ConfigRegistry(Map<String, ConfigAPI> instances)
+    {
+        this.instances = Collections.unmodifiableMap( instances );
+    }
+
+
+    // -------- //
+    // Creation //
+    // -------- //
+
+
+    /**
+     * Load all given files in parallel, with the default settings
+     * The returned future completes once every file is loaded, use join() to wait for it
+     * @param plugin your plugin
+     * @param fileNames the names of the files to load (config.yml, lang.yml, etc.)
+     * @return a future that completes with the registry
+     */
+    public static CompletableFuture<ConfigRegistry> load(JavaPlugin plugin, String... fileNames)
+    {
+        return load(plugin, new Settings(), Arrays.asList( fileNames ));
+    }
+
+
+    /**
+     * Load all given files in parallel
+     * The returned future completes once every file is loaded, use join() to wait for it
+     * @param plugin your plugin
+     * @param settings the settings that are used by every instance
+     * @param fileNames the names of the files to load (config.yml, lang.yml, etc.)
+     * @return a future that completes with the registry
+     */
+    public static CompletableFuture<ConfigRegistry> load(JavaPlugin plugin, Settings settings, Collection<String> fileNames)
+    {
+        Map<String, ConfigAPI> instances = new LinkedHashMap<String, ConfigAPI>();
+        for (String fileName : fileNames)
+            instances.put(fileName, new ConfigAPI(fileName, settings, plugin, false));
+
+        ConfigRegistry registry = new ConfigRegistry( instances );
+        return registry.reloadAll( true ).thenApply(done -> registry);
+    }
+
+
+    /**
+     * Load every file in the plugin's data folder that matches a glob pattern, in parallel
+     * The pattern is matched against the path relative to the data folder, eg. "*.yml" or "lang/*.yml"
+     * The returned future completes once every file is loaded, use join() to wait for it
+     * @param plugin your plugin
+     * @param settings the settings that are used by every instance
+     * @param glob the pattern
+     * @return a future that completes with the registry
+     */
+    public static CompletableFuture<ConfigRegistry> loadMatching(JavaPlugin plugin, Settings settings, String glob)
+    {
+        return load(plugin, settings, findFiles(plugin.getDataFolder(), glob));
+    }
+
+
+    /**
+     * Find the files in a folder that match a glob pattern
+     * @param folder the folder to search
+     * @param glob the pattern, relative to the folder
+     * @return the relative path of each matching file, sorted
+     */
+    private static List<String> findFiles(File folder, String glob)
+    {
+        if ( ! folder.isDirectory() )
+            return new ArrayList<String>();
+
+        Path root = folder.toPath();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+        try (Stream<Path> paths = Files.walk( root ))
+        {
+            return paths
+                    .filter( Files::isRegularFile )
+                    .map( root::relativize )
+                    .filter( matcher::matches )
+                    .map(path -> path.toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .collect( Collectors.toList() );
+        }
+        catch (IOException ex)
+        {
+            Logger.log("Could not search the files of " + folder.getName() + ": " + ex.getMessage());
+            return new ArrayList<String>();
+        }
+    }
+
+
+    // --------- //
+    // Reloading //
+    // --------- //
+
+
+    /**
+     * Reload every file in parallel, files that did not change are skipped
+     * @return a future that completes once every file is reloaded
+     */
+    public CompletableFuture<Void> reloadAll()
+    {
+        return reloadAll( false );
+    }
+
+
+    /**
+     * Reload every file in parallel
+     * @param force true to reload files that did not change as well
+     * @return a future that completes once every file is reloaded
+     */
+    public CompletableFuture<Void> reloadAll(boolean force)
+    {
+        List<CompletableFuture<Void>> loads = new ArrayList<CompletableFuture<Void>>();
+
+        for (Map.Entry<String, ConfigAPI> entry : instances.entrySet())
+        {
+            ConfigAPI api = entry.getValue();
+
+            loads.add( CompletableFuture.runAsync(() -> {
+                long start = System.nanoTime();
+                api.reloadContents( force );
+                loadNanos.put(entry.getKey(), System.nanoTime() - start);
+            }, BackgroundExecutor.forkJoinPool()));
+        }
+
+        return CompletableFuture.allOf( loads.toArray( new CompletableFuture<?>[0] ) );
+    }
+
+
+    // ------------ //
+    // Getting data //
+    // ------------ //
+
+
+    /**
+     * Get the instance of a file
+     * @param fileName the name of the file, as it was given to the registry
+     * @return the instance or null if this file is not part of the registry
+     */
+    public ConfigAPI get(String fileName)
+    {
+        return instances.get( fileName );
+    }
+
+
+    /**
+     * Get every instance of this registry
+     * @return an unmodifiable map of file names to instances
+     */
+    public Map<String, ConfigAPI> getAll()
+    {
+        return instances;
+    }
+
+
+    /**
+     * Get the wall clock time the last (re)load of a file took, a skipped reload counts as well
+     * ConfigAPI#getLastReloadTimings() gives a breakdown of the last reload that was performed
+     * @param fileName the name of the file
+     * @return the time in nanoseconds or -1 if the file was never loaded by this registry
+     */
+    public long getLoadNanos(String fileName)
+    {
+        Long nanos = loadNanos.get( fileName );
+        return nanos != null ? nanos : -1;
+    }
+
+
+    /**
+     * Get the wall clock time the last (re)load of each file took
+     * @return a copy of the load times in nanoseconds, by file name
+     */
+    public Map<String, Long> getLoadTimes()
+    {
+        Map<String, Long> times = new LinkedHashMap<String, Long>();
+        for (String fileName : instances.keySet())
+            times.put(fileName, getLoadNanos( fileName ));
+        return times;
+    }
+}
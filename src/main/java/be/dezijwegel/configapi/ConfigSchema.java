@@ -0,0 +1,418 @@
+package be.dezijwegel.configapi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ConfigSchema {
+
+    // The expected type of every option, compiled once from the default config
+    // Optional constraints are read from a sidecar resource next to the default config, eg. config.schema.yml for config.yml:
+    //
+    //      spawn:
+    //        radius:
+    //          min: 1              # The lowest allowed number
+    //          max: 100            # The highest allowed number
+    //      difficulty:
+    //        values: [easy, normal, hard]      # The allowed values, the case is ignored
+    //      ratio:
+    //        type: Double          # Overrides the type of the default value: Integer, Long, Double, Number, Boolean, String or List
+    //
+    // The live config is validated and converted once per reload, so every loaded value has the type its default value has
+    // YAML picks the size of a number by how it is written, so any number is valid where the default value is a number: 1.5 stays 1.5 when the default is 1
+    // Numbers are also left as they are where the default value is a String or List. Declaring a type makes the rule strict
+    // Values that cannot be converted or break a constraint are replaced by their default value
+
+    static final String SIDECAR_EXTENSION = ".schema.yml";
+
+    private static final byte INT       = 0;
+    private static final byte LONG      = 1;
+    private static final byte DOUBLE    = 2;
+    private static final byte BOOLEAN   = 3;
+    private static final byte STRING    = 4;
+    private static final byte LIST      = 5;
+    private static final byte NUMBER    = 6;        // Any number, the type of numeric default values unless a type is declared
+    private static final byte OTHER     = 7;        // Any other value, only its type is compared
+
+    private static final String[] TYPE_NAMES = {"Integer", "Long", "Double", "Boolean", "String", "List", "Number"};
+
+    private final Map<String, Rule> rules;          // The rule of each option of the default config, by full path
+    private final FlatConfig defaults;              // The default config, with each value converted to its declared type
+
+
+    private ConfigSchema(Map<String, Rule> rules, FlatConfig defaults)
+    {
+        this.rules = rules;
+        this.defaults = defaults;
+    }
+
+
+    /**
+     * Get the name of the resource that holds the constraints of a config file
+     * @param fileName the name of the config file, eg. "lang/en.yml"
+     * @return the name of the sidecar resource, eg. "lang/en.schema.yml"
+     */
+    static String getSidecarName(String fileName)
+    {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > fileName.lastIndexOf('/') ? fileName.substring(0, dot) : fileName;
+        return base + SIDECAR_EXTENSION;
+    }
+
+
+    /**
+     * Compile the schema of a default config
+     * Constraints of paths that are not in the default config and unknown type names are ignored
+     * @param defaults the flattened default config
+     * @param constraints the flattened sidecar, FlatConfig.EMPTY when there is none
+     * @return the schema
+     */
+    static ConfigSchema compile(FlatConfig defaults, FlatConfig constraints)
+    {
+        Map<String, Rule> rules = new HashMap<String, Rule>();
+        Map<String, Object> defaultValues = null;          // Only copied when a default value has to be converted
+
+        Map<String, Object> constraintLeaves = constraints.getLeaves();
+
+        for (Map.Entry<String, Object> entry : defaults.getLeaves().entrySet())
+        {
+            String path = entry.getKey();
+            Object value = entry.getValue();
+
+            byte type = typeOf( value );
+            boolean strict = false;
+            Object declared = constraintLeaves.get(path + ".type");
+            if (declared != null)
+            {
+                byte declaredType = typeByName( declared.toString() );
+                Object converted = declaredType != OTHER ? convert(declaredType, null, value) : null;
+
+                if (converted != null)
+                {
+                    type = declaredType;
+                    strict = true;
+
+                    if (converted != value)
+                    {
+                        if (defaultValues == null)
+                            defaultValues = new LinkedHashMap<String, Object>( defaults.getLeaves() );
+                        defaultValues.put(path, converted);
+                        value = converted;
+                    }
+                }
+            }
+
+            Object min = constraintLeaves.get(path + ".min");
+            Object max = constraintLeaves.get(path + ".max");
+            Object values = constraintLeaves.get(path + ".values");
+
+            rules.put(path, new Rule(
+                    type,
+                    type == OTHER ? ConfigDiff.typeOf( value ) : TYPE_NAMES[ type ],
+                    min instanceof Number ? ((Number) min).doubleValue() : Double.NEGATIVE_INFINITY,
+                    max instanceof Number ? ((Number) max).doubleValue() : Double.POSITIVE_INFINITY,
+                    values instanceof List ? new ArrayList<Object>( (List<?>) values ) : null,
+                    value,
+                    strict
+            ));
+        }
+
+        return new ConfigSchema(rules, defaultValues == null ? defaults : defaults.withLeaves( defaultValues ));
+    }
+
+
+    /**
+     * Get the default config with every value converted to its declared type
+     * @return the same FlatConfig as was compiled when no type was overridden
+     */
+    FlatConfig getDefaults()
+    {
+        return defaults;
+    }
+
+
+    /**
+     * Check the type and constraints of every option of a live config, in a single pass
+     * Options that are not in the default config are left as they are
+     * @param live the flattened live config
+     * @return the converted live config and every violation that was found
+     */
+    Validation validate(FlatConfig live)
+    {
+        Map<String, Object> leaves = null;             // Only copied when a value has to change
+        List<SchemaViolation> violations = new ArrayList<SchemaViolation>();
+
+        for (Map.Entry<String, Object> entry : live.getLeaves().entrySet())
+        {
+            Rule rule = rules.get( entry.getKey() );
+            if (rule == null)
+                continue;
+
+            Object value = entry.getValue();
+            Object result = rule.apply( value );
+
+            if (result == value)
+                continue;
+
+            boolean converted = result != null;
+            if ( ! converted )
+                result = rule.defaultValue;
+
+            violations.add( new SchemaViolation(entry.getKey(), rule.expected, value, result, converted) );
+
+            if (leaves == null)
+                leaves = new LinkedHashMap<String, Object>( live.getLeaves() );
+            leaves.put(entry.getKey(), result);
+        }
+
+        return new Validation(leaves == null ? live : live.withLeaves( leaves ), violations);
+    }
+
+
+    // ----- //
+    // Types //
+    // ----- //
+
+
+    private static byte typeOf(Object value)
+    {
+        if (value instanceof Number)
+            return NUMBER;
+        if (value instanceof Boolean)
+            return BOOLEAN;
+        if (value instanceof String)
+            return STRING;
+        if (value instanceof List)
+            return LIST;
+        return OTHER;
+    }
+
+
+    private static byte typeByName(String name)
+    {
+        for (byte type = 0; type < TYPE_NAMES.length; type++)
+        {
+            if (TYPE_NAMES[ type ].equalsIgnoreCase( name ))
+                return type;
+        }
+        return OTHER;
+    }
+
+
+    /**
+     * Convert a value to a type
+     * @param type the expected type
+     * @param typeName the name of the expected type, only used for OTHER
+     * @param value the value
+     * @return the value itself when it already has this type, the converted value or null when it cannot be converted
+     */
+    private static Object convert(byte type, String typeName, Object value)
+    {
+        switch (type)
+        {
+            case INT:
+            {
+                if (value instanceof Integer)
+                    return value;
+                Number number = value instanceof String ? parseNumber( (String) value ) : value instanceof Number ? (Number) value : null;
+                return isWhole( number ) && number.doubleValue() >= Integer.MIN_VALUE && number.doubleValue() <= Integer.MAX_VALUE ? (Object) number.intValue() : null;
+            }
+            case LONG:
+            {
+                if (value instanceof Long)
+                    return value;
+                Number number = value instanceof String ? parseNumber( (String) value ) : value instanceof Number ? (Number) value : null;
+                return isWhole( number ) && (number instanceof Long || number instanceof Integer || Math.abs( number.doubleValue() ) < 0x1p63) ? (Object) number.longValue() : null;
+            }
+            case DOUBLE:
+            {
+                if (value instanceof Double)
+                    return value;
+                Number number = value instanceof String ? parseNumber( (String) value ) : value instanceof Number ? (Number) value : null;
+                return number != null ? (Object) number.doubleValue() : null;
+            }
+            case NUMBER:
+            {
+                if (value instanceof Number)
+                    return value;
+                Number number = value instanceof String ? parseNumber( (String) value ) : null;
+                if (number instanceof Long && number.longValue() == number.intValue())
+                    return number.intValue();
+                return number;
+            }
+            case BOOLEAN:
+            {
+                if (value instanceof Boolean)
+                    return value;
+                if ( ! (value instanceof String) )
+                    return null;
+                String text = ((String) value).trim();
+                if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("yes") || text.equalsIgnoreCase("on"))
+                    return Boolean.TRUE;
+                if (text.equalsIgnoreCase("false") || text.equalsIgnoreCase("no") || text.equalsIgnoreCase("off"))
+                    return Boolean.FALSE;
+                return null;
+            }
+            case STRING:
+                if (value instanceof String)
+                    return value;
+                return value instanceof Number || value instanceof Boolean ? String.valueOf( value ) : null;
+            case LIST:
+            {
+                if (value instanceof List)
+                    return value;
+                if ( ! (value instanceof String || value instanceof Number || value instanceof Boolean) )
+                    return null;
+                List<Object> list = new ArrayList<Object>(1);
+                list.add( value );
+                return list;
+            }
+            default:
+                return typeName.equals( ConfigDiff.typeOf( value ) ) ? value : null;
+        }
+    }
+
+
+    /**
+     * Parse a number that was written as text
+     * @param text eg. "5", " 5 " or "2.5"
+     * @return a Long for whole numbers, a Double for finite decimal numbers or null when the text is not a number
+     */
+    private static Number parseNumber(String text)
+    {
+        text = text.trim();
+
+        try {
+            return Long.parseLong( text );
+        } catch (NumberFormatException ignored) {}
+
+        try {
+            double number = Double.parseDouble( text );
+            return Double.isInfinite( number ) || Double.isNaN( number ) ? null : number;
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+
+
+    private static boolean isWhole(Number number)
+    {
+        if (number instanceof Integer || number instanceof Long)
+            return true;
+        if (number instanceof Double || number instanceof Float)
+            return number.doubleValue() == Math.rint( number.doubleValue() ) && ! Double.isInfinite( number.doubleValue() );
+        return false;
+    }
+
+
+    // ------- //
+    // Results //
+    // ------- //
+
+
+    static final class Validation {
+
+        final FlatConfig config;                    // The live config with every invalid value converted or replaced by its default
+        final List<SchemaViolation> violations;     // Every value that had to be converted or replaced, in file order
+
+        private Validation(FlatConfig config, List<SchemaViolation> violations)
+        {
+            this.config = config;
+            this.violations = Collections.unmodifiableList( violations );
+        }
+    }
+
+
+    private static final class Rule {
+
+        private final byte type;                // The expected type
+        private final String typeName;          // The name of the expected type
+        private final double min;               // The lowest allowed number, negative infinity when there is no limit
+        private final double max;               // The highest allowed number, positive infinity when there is no limit
+        private final List<Object> values;      // The allowed values, null when any value is allowed
+        private final Object defaultValue;      // The value that is used when the live value is invalid
+        private final boolean strict;           // True when the type was declared in the sidecar, numbers are then converted to a String or List as well
+        private final String expected;          // A description of valid values, used in violations
+
+        private Rule(byte type, String typeName, double min, double max, List<Object> values, Object defaultValue, boolean strict)
+        {
+            this.type = type;
+            this.typeName = typeName;
+            this.min = min;
+            this.max = max;
+            this.values = values;
+            this.defaultValue = defaultValue;
+            this.strict = strict;
+            this.expected = describe();
+        }
+
+
+        /**
+         * Convert a live value and check its constraints
+         * @param value the live value
+         * @return the value itself when it is valid, the converted value or null when it is invalid
+         */
+        private Object apply(Object value)
+        {
+            boolean keepNumber = ! strict && value instanceof Number && (type == STRING || type == LIST);
+            Object result = keepNumber ? value : convert(type, typeName, value);
+            if (result == null)
+                return null;
+
+            if (result instanceof Number)
+            {
+                double number = ((Number) result).doubleValue();
+                if (number < min || number > max)
+                    return null;
+            }
+
+            if (values != null)
+            {
+                String text = String.valueOf( result );
+                for (Object allowed : values)
+                {
+                    String allowedText = String.valueOf( allowed );
+                    if (allowedText.equals( text ))
+                        return result;
+                    if (allowedText.equalsIgnoreCase( text ))
+                        return type == STRING ? allowedText : result;
+                }
+                return null;
+            }
+
+            return result;
+        }
+
+
+        private String describe()
+        {
+            String description = ("AEIOU".indexOf( typeName.charAt(0) ) >= 0 ? "an " : "a ") + typeName;
+
+            if (min != Double.NEGATIVE_INFINITY && max != Double.POSITIVE_INFINITY)
+                description += " between " + format( min ) + " and " + format( max );
+            else if (min != Double.NEGATIVE_INFINITY)
+                description += " of at least " + format( min );
+            else if (max != Double.POSITIVE_INFINITY)
+                description += " of at most " + format( max );
+
+            if (values != null)
+            {
+                StringBuilder allowed = new StringBuilder();
+                for (Object value : values)
+                    allowed.append(allowed.length() == 0 ? "" : ", ").append( value );
+                description += " (one of " + allowed + ")";
+            }
+
+            return description;
+        }
+
+
+        private static String format(double number)
+        {
+            return number == Math.rint( number ) && Math.abs( number ) < 1e15 ? Long.toString( (long) number ) : Double.toString( number );
+        }
+    }
+}
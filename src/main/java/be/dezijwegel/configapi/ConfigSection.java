@@ -0,0 +1,204 @@
+package be.dezijwegel.configapi;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class ConfigSection {
+
+    // A lightweight view of one section of the loaded values, obtained through ConfigAPI#getSection(String)
+    // No values are copied: the view reads from the values that were loaded when it was created, later reloads do not affect it
+    // Paths given to this view are relative to the section, just like they are for a ConfigurationSection
+
+    private final ValueTable table;         // The loaded values this view reads from
+    private final String path;              // The full path of this section, an empty String for the root
+    private final String prefix;            // The full path followed by a dot, an empty String for the root
+
+
+    ConfigSection(ValueTable table, String path)
+    {
+        this.table = table;
+        this.path = path;
+        this.prefix = path.isEmpty() ? "" : path + ".";
+    }
+
+
+    /**
+     * Get the full path of this section
+     * @return the full path, an empty String for the root
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+
+    /**
+     * Get the keys within this section, in the order they appear in the file
+     * @param deep false to only get the direct children, true to get all paths within this section (subsections included)
+     * @return the keys relative to this section
+     */
+    public Set<String> getKeys(boolean deep)
+    {
+        Set<String> keys = new LinkedHashSet<String>();
+
+        if ( ! deep )
+        {
+            keys.addAll( table.childrenOf( path ) );
+            return keys;
+        }
+
+        // Every value also adds the sections it is in, like ConfigurationSection#getKeys(true)
+
+        for (int entry : table.entriesWithin( path ))
+        {
+            String relative = table.pathAt( entry ).substring( prefix.length() );
+
+            int dot = relative.indexOf('.');
+            while (dot >= 0)
+            {
+                keys.add( relative.substring(0, dot) );
+                dot = relative.indexOf('.', dot + 1);
+            }
+
+            keys.add( relative );
+        }
+
+        return keys;
+    }
+
+
+    /**
+     * Get all values within this section, at any depth, in the order they appear in the file
+     * Numbers and booleans will be boxed
+     * @return a Map of paths relative to this section to their value
+     */
+    public Map<String, Object> getValues()
+    {
+        int[] entries = table.entriesWithin( path );
+        Map<String, Object> values = new LinkedHashMap<String, Object>( entries.length * 2 );
+
+        for (int entry : entries)
+            values.put(table.pathAt( entry ).substring( prefix.length() ), table.objectAt( entry ));
+
+        return values;
+    }
+
+
+    /**
+     * Get a subsection of this section
+     * @param key the path of the subsection, relative to this section
+     * @return a view of the subsection or null if it contains no values
+     */
+    public ConfigSection getSection(String key)
+    {
+        String full = prefix + key;
+        return table.hasEntriesWithin( full ) ? new ConfigSection(table, full) : null;
+    }
+
+
+    /**
+     * Get the names of the direct children of this section
+     * @return the names in the order they appear in the file
+     */
+    public List<String> getChildren()
+    {
+        return table.childrenOf( path );
+    }
+
+
+    // ------------ //
+    // Getting data //
+    // ------------ //
+
+
+    /**
+     * Check whether this section contains a value at the given path
+     * @param key the path relative to this section
+     * @return true if a value exists
+     */
+    public boolean contains(String key)
+    {
+        return table.contains( prefix + key );
+    }
+
+
+    /**
+     * Get the value at the given path, numbers and booleans will be boxed
+     * @param key the path relative to this section
+     * @return the value or null if it does not exist
+     */
+    public Object get(String key)
+    {
+        return table.get( prefix + key );
+    }
+
+
+    /**
+     * Get a String within this section
+     * @param key the path relative to this section
+     * @return an empty String when the option does not exist or the value is not of the requested type
+     */
+    public String getString(String key)
+    {
+        int index = table.indexOf( prefix + key );
+        return table.hasView(index, ValueTable.AS_STRING) ? table.stringAt( index ) : "";
+    }
+
+
+    /**
+     * Get an int within this section
+     * @param key the path relative to this section
+     * @return zero (0) when the option does not exist or the value is not of the requested type
+     */
+    public int getInt(String key)
+    {
+        int index = table.indexOf( prefix + key );
+        return table.hasView(index, ValueTable.AS_INT) ? table.intAt( index ) : 0;
+    }
+
+
+    /**
+     * Get a long within this section
+     * @param key the path relative to this section
+     * @return zero (0) when the option does not exist or the value is not of the requested type
+     */
+    public long getLong(String key)
+    {
+        int index = table.indexOf( prefix + key );
+        return table.hasView(index, ValueTable.AS_LONG) ? table.longAt( index ) : 0;
+    }
+
+
+    /**
+     * Get a double within this section
+     * @param key the path relative to this section
+     * @return zero (0) when the option does not exist or the value is not of the requested type
+     */
+    public double getDouble(String key)
+    {
+        int index = table.indexOf( prefix + key );
+        return table.hasView(index, ValueTable.AS_DOUBLE) ? table.doubleAt( index ) : 0;
+    }
+
+
+    /**
+     * Get a boolean within this section
+     * @param key the path relative to this section
+     * @return false when the option does not exist or the value is not of the requested type
+     */
+    public boolean getBoolean(String key)
+    {
+        int index = table.indexOf( prefix + key );
+        return table.hasView(index, ValueTable.AS_BOOLEAN) && table.booleanAt( index );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ConfigSection{path=" + path + "}";
+    }
+}
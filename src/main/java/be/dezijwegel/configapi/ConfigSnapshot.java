@@ -0,0 +1,79 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.FileFingerprint;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class ConfigSnapshot {
+
+    // Everything a reload produces, bundled in one immutable object
+    // ConfigAPI publishes a new snapshot with a single volatile write, so readers always see one complete reload
+    // Readers should read ConfigAPI#snapshot once and use that reference for the rest of their work
+
+    static final ConfigSnapshot EMPTY = new ConfigSnapshot(ValueTable.EMPTY, new Object[0], ReloadTimings.NONE, FileFingerprint.MISSING, -1L, null, Collections.<SchemaViolation>emptyList());       // No settings have all 64 bits set, so EMPTY is never up to date
+
+    final ValueTable contents;              // All loaded values
+    final Object[] keyValues;               // The resolved value of each key handle, indexed by slot
+    final ReloadTimings timings;            // The time spent in each stage of the reload that created this snapshot
+    final FileFingerprint liveFingerprint;  // The state of the live config file when it was read for this snapshot
+    final long settings;                    // The flags of the settings that were used to create this snapshot
+    final Map<String, MessageTemplate> messages;    // Every message that was compiled from these contents, by path
+    final ConfigDiff diff;                  // The comparison of the live and default config, null when it was not computed
+    final List<SchemaViolation> violations; // Every value that did not match the schema of the default config, empty when it was not validated
+
+
+    ConfigSnapshot(ValueTable contents, Object[] keyValues, ReloadTimings timings, FileFingerprint liveFingerprint, long settings, ConfigDiff diff, List<SchemaViolation> violations)
+    {
+        this(contents, keyValues, timings, liveFingerprint, settings, diff, violations, new ConcurrentHashMap<String, MessageTemplate>());
+    }
+
+
+    private ConfigSnapshot(ValueTable contents, Object[] keyValues, ReloadTimings timings, FileFingerprint liveFingerprint, long settings, ConfigDiff diff, List<SchemaViolation> violations, Map<String, MessageTemplate> messages)
+    {
+        this.contents = contents;
+        this.keyValues = keyValues;
+        this.timings = timings;
+        this.liveFingerprint = liveFingerprint;
+        this.settings = settings;
+        this.messages = messages;
+        this.diff = diff;
+        this.violations = violations;
+    }
+
+
+    /**
+     * Create a copy of this snapshot with different key values, used when a key is added after loading
+     * @param keyValues the resolved value of each key handle
+     * @return a new snapshot
+     */
+    ConfigSnapshot withKeyValues(Object[] keyValues)
+    {
+        return new ConfigSnapshot(contents, keyValues, timings, liveFingerprint, settings, diff, violations, messages);
+    }
+
+
+    /**
+     * Create a copy of this snapshot with different contents, used when values are set at runtime
+     * @param contents the new values
+     * @param keyValues the resolved value of each key handle for the new values
+     * @return a new snapshot
+     */
+    ConfigSnapshot withContents(ValueTable contents, Object[] keyValues)
+    {
+        return new ConfigSnapshot(contents, keyValues, timings, liveFingerprint, settings, diff, violations);
+    }
+
+
+    /**
+     * Create a copy of this snapshot for a different state of the live config, used after writing changes to it
+     * @param liveFingerprint the state of the live config file
+     * @return a new snapshot
+     */
+    ConfigSnapshot withLiveFingerprint(FileFingerprint liveFingerprint)
+    {
+        return new ConfigSnapshot(contents, keyValues, timings, liveFingerprint, settings, diff, violations, messages);
+    }
+}
@@ -0,0 +1,198 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.DisableListener;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+final class DefaultConfigCache {
+
+    // A process wide cache of flattened default configs, shared by all ConfigAPI instances
+    // Entries are stored per plugin and file name. A plugin's jar cannot change while it is enabled, so an entry stays valid until it is evicted
+    // A cached FlatConfig is immutable (values included), so it can be handed to every instance as is
+    // The resource (and its schema sidecar) is read once per entry, it is only parsed when the flattened config or schema is requested
+    // All entries of a plugin are evicted once that plugin is disabled, the entry of a single file once an instance that uses it is closed
+
+    private static final Map<Plugin, Map<String, Entry>> cache = new ConcurrentHashMap<Plugin, Map<String, Entry>>();
+
+
+    private DefaultConfigCache() {}
+
+
+    /**
+     * Get the flattened default config of a plugin
+     * The parser is only used when no entry exists yet
+     * @param plugin the plugin that provides the default config
+     * @param fileName the name of the resource
+     * @param parser creates the YamlConfiguration from the contents of the resource on a cache miss
+     * @return the immutable flattened default config
+     */
+    static FlatConfig get(Plugin plugin, String fileName, Function<byte[], YamlConfiguration> parser)
+    {
+        return getConfig(getEntry(plugin, fileName), parser);
+    }
+
+
+    /**
+     * Get the schema of a default config, compiled from the flattened default config and its sidecar resource (see ConfigSchema)
+     * @param plugin the plugin that provides the default config
+     * @param fileName the name of the resource
+     * @param parser creates the YamlConfiguration from the contents of a resource on a cache miss
+     * @return the schema
+     */
+    static ConfigSchema getSchema(Plugin plugin, String fileName, Function<byte[], YamlConfiguration> parser)
+    {
+        Entry entry = getEntry(plugin, fileName);
+
+        synchronized (entry)
+        {
+            if (entry.schema == null)
+            {
+                FlatConfig constraints = entry.constraints.length == 0 ? FlatConfig.EMPTY : FlatConfig.of(parser.apply( entry.constraints ), true);
+                entry.schema = ConfigSchema.compile(getConfig(entry, parser), constraints);
+                entry.constraints = null;   // The raw contents are no longer needed
+            }
+
+            return entry.schema;
+        }
+    }
+
+
+    private static FlatConfig getConfig(Entry entry, Function<byte[], YamlConfiguration> parser)
+    {
+        synchronized (entry)
+        {
+            if (entry.config == null)
+            {
+                entry.config = FlatConfig.of(parser.apply( entry.source ), true);
+                entry.source = null;        // The raw contents are no longer needed
+            }
+
+            return entry.config;
+        }
+    }
+
+
+    /**
+     * Get a hash of the contents of a default config and its schema, without parsing them
+     * @param plugin the plugin that provides the default config
+     * @param fileName the name of the resource
+     * @return the CRC32 of the contents of both resources
+     */
+    static long getSourceHash(Plugin plugin, String fileName)
+    {
+        return getEntry(plugin, fileName).sourceHash;
+    }
+
+
+    /**
+     * Get the entry of a default config, its contents are read when no entry exists yet
+     * @param plugin the plugin that provides the default config
+     * @param fileName the name of the resource
+     * @return the entry
+     */
+    private static Entry getEntry(Plugin plugin, String fileName)
+    {
+        Map<String, Entry> entries = cache.get( plugin );
+
+        if (entries == null)
+        {
+            Map<String, Entry> created = new ConcurrentHashMap<String, Entry>();
+            entries = cache.putIfAbsent(plugin, created);
+
+            if (entries == null)
+            {
+                entries = created;
+                DisableListener.onDisable(plugin, () -> evict( plugin ));
+            }
+        }
+
+        Entry entry = entries.get( fileName );
+
+        if (entry == null)
+        {
+            entry = new Entry(readResource(plugin, fileName), readResource(plugin, ConfigSchema.getSidecarName( fileName )));
+            entries.put(fileName, entry);
+        }
+
+        return entry;
+    }
+
+
+    /**
+     * Read a resource from the jar file of a plugin
+     * @param plugin the plugin
+     * @param fileName the name of the resource
+     * @return the contents or an empty array when the resource does not exist or cannot be read
+     */
+    static byte[] readResource(Plugin plugin, String fileName)
+    {
+        try (InputStream stream = plugin.getResource( fileName ))
+        {
+            if (stream == null)
+                return new byte[0];
+
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read( buffer )) != -1)
+                contents.write(buffer, 0, read);
+
+            return contents.toByteArray();
+        } catch (IOException ex) {
+            return new byte[0];
+        }
+    }
+
+
+    /**
+     * Remove all cached default configs of a plugin
+     * @param plugin the plugin of which all entries should be removed
+     */
+    static void evict(Plugin plugin)
+    {
+        cache.remove( plugin );
+    }
+
+
+    /**
+     * Remove the cached default config and schema of a single file
+     * Other instances that use the same file read it again on their next reload
+     * @param plugin the plugin that provides the default config
+     * @param fileName the name of the resource
+     */
+    static void evict(Plugin plugin, String fileName)
+    {
+        Map<String, Entry> entries = cache.get( plugin );
+        if (entries != null)
+            entries.remove( fileName );
+    }
+
+
+    private static final class Entry {
+
+        private final long sourceHash;          // The CRC32 of the contents of the resource and its schema
+        private byte[] source;                  // The contents of the resource, until it has been parsed
+        private byte[] constraints;             // The contents of the schema resource (empty when there is none), until it has been parsed
+        private FlatConfig config;              // The immutable flattened default config, null until first requested
+        private ConfigSchema schema;            // The compiled schema, null until first requested
+
+        private Entry(byte[] source, byte[] constraints)
+        {
+            CRC32 crc = new CRC32();
+            crc.update(source, 0, source.length);
+            crc.update(constraints, 0, constraints.length);
+
+            this.sourceHash = crc.getValue();
+            this.source = source;
+            this.constraints = constraints;
+        }
+    }
+}
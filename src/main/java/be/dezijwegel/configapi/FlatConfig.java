@@ -0,0 +1,213 @@
+package be.dezijwegel.configapi;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+final class FlatConfig {
+
+    // A parsed config file, flattened into full paths
+    // Leaves are the actual options, sections are only remembered so contains() behaves like it does for a ConfigurationSection
+    // A FlatConfig is created once per source and shared by every stage of a reload
+
+    static final FlatConfig EMPTY = new FlatConfig(new LinkedHashMap<String, Object>(), new HashSet<String>());
+
+    private final Map<String, Object> leaves;       // All options (full path -> value), in file order
+    private final Set<String> sections;             // The full path of every section
+
+
+    FlatConfig(Map<String, Object> leaves, Set<String> sections)
+    {
+        this.leaves = Collections.unmodifiableMap( leaves );
+        this.sections = Collections.unmodifiableSet( sections );
+    }
+
+
+    /**
+     * Flatten a configuration section in a single walk
+     * Every level is visited once, so no path has to be resolved again from the root
+     * @param config the parsed configuration
+     * @return the flattened configuration
+     */
+    static FlatConfig of(ConfigurationSection config)
+    {
+        return of(config, false);
+    }
+
+
+    /**
+     * Flatten a configuration section in a single walk
+     * Every level is visited once, so no path has to be resolved again from the root
+     * @param config the parsed configuration
+     * @param freeze true if Lists and Maps within values should be made unmodifiable, which allows sharing the result between instances
+     * @return the flattened configuration
+     */
+    static FlatConfig of(ConfigurationSection config, boolean freeze)
+    {
+        Map<String, Object> leaves = new LinkedHashMap<String, Object>();
+        Set<String> sections = new HashSet<String>();
+
+        flatten(config, "", leaves, sections, freeze);
+
+        return new FlatConfig(leaves, sections);
+    }
+
+
+    private static void flatten(ConfigurationSection section, String prefix, Map<String, Object> leaves, Set<String> sections, boolean freeze)
+    {
+        for (Map.Entry<String, Object> entry : section.getValues(false).entrySet())
+        {
+            String path = prefix + entry.getKey();
+            Object value = entry.getValue();
+
+            if (value instanceof ConfigurationSection)
+            {
+                sections.add( path );
+                flatten((ConfigurationSection) value, path + ".", leaves, sections, freeze);
+            }
+            else
+            {
+                leaves.put(path, freeze ? freeze( value ) : value);
+            }
+        }
+    }
+
+
+    /**
+     * Make a value unmodifiable, Lists and Maps are copied recursively
+     * Mutable serialized objects (ItemStacks, Locations, Vectors) cannot be frozen: they are cloned whenever they are read,
+     * see ValueTable#objectAt(int). Lists that contain them hand out a clone of such elements
+     * @param value any value
+     * @return an unmodifiable copy for Lists and Maps, the value itself otherwise
+     */
+    private static Object freeze(Object value)
+    {
+        if (value instanceof List)
+        {
+            List<Object> copy = new ArrayList<Object>( ((List<?>) value).size() );
+            boolean mutable = false;
+            for (Object element : (List<?>) value)
+            {
+                Object frozen = freeze( element );
+                mutable |= LazyObject.copyOf( frozen ) != frozen;
+                copy.add( frozen );
+            }
+            return mutable ? new CopyingList( copy ) : Collections.unmodifiableList( copy );
+        }
+
+        if (value instanceof Map)
+        {
+            Map<Object, Object> copy = new LinkedHashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                copy.put(entry.getKey(), freeze( entry.getValue() ));
+            return Collections.unmodifiableMap( copy );
+        }
+
+        return value;
+    }
+
+
+    /**
+     * Create a modifiable copy of a (possibly frozen) value, Lists and Maps are copied recursively
+     * @param value any value
+     * @return a modifiable copy for Lists, Maps and mutable serialized objects, the value itself otherwise
+     */
+    static Object thaw(Object value)
+    {
+        if (value instanceof List)
+        {
+            List<Object> copy = new ArrayList<Object>( ((List<?>) value).size() );
+            for (Object element : (List<?>) value)
+                copy.add( thaw( element ) );
+            return copy;
+        }
+
+        if (value instanceof Map)
+        {
+            Map<Object, Object> copy = new LinkedHashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                copy.put(entry.getKey(), thaw( entry.getValue() ));
+            return copy;
+        }
+
+        return LazyObject.copyOf( value );
+    }
+
+
+    /**
+     * Create a copy of this configuration with other values for its options
+     * @param leaves all options (full path -> value), the paths should be those of this configuration
+     * @return a new configuration with the same sections
+     */
+    FlatConfig withLeaves(Map<String, Object> leaves)
+    {
+        return new FlatConfig(leaves, sections);
+    }
+
+
+    /**
+     * Get all options of this configuration
+     * @return an unmodifiable Map of full paths to values, in file order
+     */
+    Map<String, Object> getLeaves()
+    {
+        return leaves;
+    }
+
+
+    /**
+     * Check whether a path exists, either as an option or as a section
+     * @param path the full path
+     * @return true if the path exists
+     */
+    boolean contains(String path)
+    {
+        return leaves.containsKey( path ) || sections.contains( path );
+    }
+
+
+    /**
+     * Get the amount of options in this configuration
+     * @return the amount of leaves
+     */
+    int size()
+    {
+        return leaves.size();
+    }
+
+
+    private static final class CopyingList extends AbstractList<Object> implements RandomAccess {
+
+        // An unmodifiable List of a shared default value, which hands out a clone of each mutable element
+
+        private final List<Object> elements;        // The frozen elements
+
+
+        private CopyingList(List<Object> elements)
+        {
+            this.elements = elements;
+        }
+
+
+        @Override
+        public Object get(int index)
+        {
+            return LazyObject.copyOf( elements.get( index ) );
+        }
+
+
+        @Override
+        public int size()
+        {
+            return elements.size();
+        }
+    }
+}
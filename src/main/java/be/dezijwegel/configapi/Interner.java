@@ -0,0 +1,43 @@
+package be.dezijwegel.configapi;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+final class Interner {
+
+    // A process wide pool of immutable values, so equal values of all ConfigAPI instances are stored once
+    // Both the keys and the values are weakly referenced: a value is dropped once no table uses it anymore
+    // Unlike String#intern() this works for any immutable value with equals() and hashCode(), and it never fills the JVM's string pool
+
+    private static final Map<Object, WeakReference<Object>> pool = new WeakHashMap<Object, WeakReference<Object>>();
+
+
+    private Interner() {}
+
+
+    /**
+     * Get the pooled instance that is equal to the given value, the value itself is added when no such instance exists yet
+     * @param value an immutable value, eg. a String
+     * @param <T> the type of the value
+     * @return the shared instance
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T intern(T value)
+    {
+        if (value == null)
+            return null;
+
+        synchronized (pool)
+        {
+            WeakReference<Object> reference = pool.get( value );
+            Object pooled = reference != null ? reference.get() : null;
+
+            if (pooled != null)
+                return (T) pooled;
+
+            pool.put(value, new WeakReference<Object>( value ));
+            return value;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.Logger;
+import org.bukkit.Location;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class LazyObject {
+
+    // A serialized object (ItemStack, Location, ...) that is kept in its raw map form until it is first read
+    // The object is deserialized once, every reader after that gets the same instance, or a cheap clone of it for mutable types
+    // A LazyObject belongs to the loaded values of one reload, so the cached instance is never shared with the values of a later reload
+
+    private static final Object FAILED = new Object();     // Marks an object that could not be deserialized
+
+    private final Map<String, Object> raw;      // The serialized form, nested serialized objects are still raw maps as well
+    private Object resolved;                    // The deserialized object, null until first read
+
+
+    LazyObject(Map<String, Object> raw)
+    {
+        this.raw = raw;
+    }
+
+
+    /**
+     * Get the deserialized object, it is created on the first call
+     * ItemStacks, Locations and Vectors are cloned, so callers cannot change the cached instance
+     * @return the object or null if it cannot be deserialized
+     */
+    Object get()
+    {
+        Object value;
+
+        synchronized (this)
+        {
+            if (resolved == null)
+                resolved = deserialize();
+            value = resolved;
+        }
+
+        return value != FAILED ? copyOf( value ) : null;
+    }
+
+
+    /**
+     * Clone a value if it is a mutable serialized object, so callers cannot change an instance that is shared
+     * @param value any value
+     * @return a clone for ItemStacks, Locations and Vectors, the value itself otherwise
+     */
+    static Object copyOf(Object value)
+    {
+        if (value instanceof ItemStack)
+            return ((ItemStack) value).clone();
+        if (value instanceof Location)
+            return ((Location) value).clone();
+        if (value instanceof Vector)
+            return ((Vector) value).clone();
+        return value;
+    }
+
+
+    /**
+     * Get the simple class name of the serialized object, without deserializing it
+     * @return the class name, or the alias that was stored in the file when no class is registered for it
+     */
+    String getTypeName()
+    {
+        Object alias = raw.get( ConfigurationSerialization.SERIALIZED_TYPE_KEY );
+        Class<?> type = alias instanceof String ? ConfigurationSerialization.getClassByAlias( (String) alias ) : null;
+
+        return type != null ? type.getSimpleName() : String.valueOf( alias );
+    }
+
+
+    private Object deserialize()
+    {
+        try {
+            Object value = resolve( raw );
+            return value != null ? value : FAILED;
+        } catch (RuntimeException ex) {
+            Logger.log("Could not deserialize a " + raw.get( ConfigurationSerialization.SERIALIZED_TYPE_KEY ) + ": " + ex.getMessage());
+            return FAILED;
+        }
+    }
+
+
+    /**
+     * Deserialize all serialized objects within a value, deepest first like YamlConfiguration does
+     * @param value a raw value
+     * @return the value with all serialized objects replaced by their deserialized form
+     */
+    private static Object resolve(Object value)
+    {
+        if (value instanceof List)
+        {
+            List<Object> list = new ArrayList<Object>( ((List<?>) value).size() );
+            for (Object element : (List<?>) value)
+                list.add( resolve( element ));
+            return list;
+        }
+
+        if (value instanceof Map)
+        {
+            Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                map.put(entry.getKey(), resolve( entry.getValue() ));
+
+            if ( ! map.containsKey( ConfigurationSerialization.SERIALIZED_TYPE_KEY ))
+                return map;
+
+            Map<String, Object> typed = new LinkedHashMap<String, Object>( map.size() );
+            for (Map.Entry<Object, Object> entry : map.entrySet())
+                typed.put(entry.getKey().toString(), entry.getValue());
+
+            return ConfigurationSerialization.deserializeObject( typed );
+        }
+
+        return value;
+    }
+
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof LazyObject && raw.equals( ((LazyObject) other).raw );
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return raw.hashCode();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "LazyObject" + raw;
+    }
+}
@@ -0,0 +1,526 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.BackgroundExecutor;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+public class LocaleBundle {
+
+    // Per player language files, one ConfigAPI instance per locale, eg. lang/en.yml, lang/nl.yml and lang/nl_be.yml
+    // A locale is only loaded the first time one of its values is requested, locales that nobody uses are never read
+    // Lookups fall back through a chain of locales: nl_be -> nl -> the default locale. Every file only holds its own options,
+    // nothing is copied between locales, a lookup simply continues with the next locale that has the option
+    // Rarely used locales are unloaded once more locales or more (estimated) memory than allowed are loaded, the default locale always stays loaded
+    //
+    // Locales come from clients, so only names such as "en" or "nl_be" are used in file names, any other name uses the default locale
+    // Only locales that have a file get an entry, the most recently requested locales without a file are remembered so their files are not looked for on every lookup
+
+    private static final Pattern VALID_LOCALE = Pattern.compile("[a-z]{2,3}(_[a-z0-9]+)*");     // A normalized locale that may be used in a file name
+    private static final int MAX_REMEMBERED_LOCALES = 256;         // The most locales without a file and fallback chains that are remembered, the least recently used are forgotten first
+
+    private final JavaPlugin plugin;
+    private final Settings settings;            // The settings of every loaded locale
+    private final String filePattern;           // The file name of each locale, {locale} is replaced by the locale, eg. "lang/{locale}.yml"
+    private final String defaultLocale;         // The last locale of every fallback chain
+
+    private final Map<String, Entry> locales = new ConcurrentHashMap<String, Entry>();          // Every requested locale that has a file, by normalized name
+    private final Map<String, Boolean> missing = recentlyUsed( MAX_REMEMBERED_LOCALES );        // Recently requested locales without a file, by normalized name
+    private final Map<String, String[]> chains = recentlyUsed( MAX_REMEMBERED_LOCALES );        // The fallback chain of recently requested locales, by normalized name
+    private final AtomicLong clock = new AtomicLong();      // Increases on every lookup, orders locales by their last use
+
+    private volatile int maxLoadedLocales = Integer.MAX_VALUE;      // The most locales that are loaded at the same time
+    private volatile long maxLoadedBytes = Long.MAX_VALUE;          // The most (estimated) memory that all loaded locales may retain
+    private volatile boolean checkLimits = false;                   // Whether a locale was loaded or a limit changed since the limits were last checked
+    private final Object evictionLock = new Object();              // Makes sure only one thread unloads locales at a time
+
+
+    /**
+     * Create a bundle of language files with the default settings, no files are loaded until they are needed
+     * @param plugin your plugin
+     * @param filePattern the file name of each locale, where {locale} is replaced by the locale, eg. "lang/{locale}.yml"
+     * @param defaultLocale the locale that is used when no other locale has an option, eg. "en"
+     */
+    public LocaleBundle(JavaPlugin plugin, String filePattern, String defaultLocale)
+    {
+        this(plugin, filePattern, defaultLocale, new Settings());
+    }
+
+
+    /**
+     * Create a bundle of language files, no files are loaded until they are needed
+     * Enabling compactStorage in the settings is recommended for large language files
+     * @param plugin your plugin
+     * @param filePattern the file name of each locale, where {locale} is replaced by the locale, eg. "lang/{locale}.yml"
+     * @param defaultLocale the locale that is used when no other locale has an option, eg. "en"
+     * @param settings the settings of every locale's ConfigAPI instance
+     * @throws IllegalArgumentException when the default locale is not a locale, eg. "en" or "en_US"
+     */
+    public LocaleBundle(JavaPlugin plugin, String filePattern, String defaultLocale, Settings settings)
+    {
+        this.plugin = plugin;
+        this.filePattern = filePattern;
+        this.defaultLocale = normalize( defaultLocale );
+        this.settings = settings;
+
+        if ( ! isValid( this.defaultLocale ))
+            throw new IllegalArgumentException("Invalid default locale: " + defaultLocale);
+    }
+
+
+    // -------- //
+    // Eviction //
+    // -------- //
+
+
+    /**
+     * Limit the amount of locales that are loaded at the same time, the least recently used locales are unloaded first
+     * An unloaded locale is loaded again when it is requested again
+     * @param maxLoadedLocales the limit, at least 1 (the default locale is always loaded)
+     */
+    public void setMaxLoadedLocales(int maxLoadedLocales)
+    {
+        this.maxLoadedLocales = Math.max(maxLoadedLocales, 1);
+        checkLimits = true;
+        evict();
+    }
+
+
+    /**
+     * Limit the memory that all loaded locales retain, the least recently used locales are unloaded first
+     * The memory of a locale is estimated once when it is loaded, see ConfigAPI#getStorageStatistics()
+     * @param maxLoadedBytes the limit in bytes
+     */
+    public void setMaxLoadedBytes(long maxLoadedBytes)
+    {
+        this.maxLoadedBytes = maxLoadedBytes;
+        checkLimits = true;
+        evict();
+    }
+
+
+    // ------------ //
+    // Getting data //
+    // ------------ //
+
+
+    /**
+     * Get a String in the language of a player
+     * @param player the player, whose client locale is used
+     * @param path the path of the option
+     * @return the value of the first locale in the fallback chain that has this option, an empty String when none has it
+     */
+    public String getString(Player player, String path)
+    {
+        return getString(player.getLocale(), path);
+    }
+
+
+    /**
+     * Get a String in the given locale
+     * @param locale the locale, eg. "nl_BE", "nl_be" or "nl-BE"
+     * @param path the path of the option
+     * @return the value of the first locale in the fallback chain that has this option, an empty String when none has it
+     */
+    public String getString(String locale, String path)
+    {
+        ConfigAPI api = find(locale, path);
+        return api != null ? api.getString( path ) : "";
+    }
+
+
+    /**
+     * Get a message in the language of a player, prepared to be sent many times (see ConfigAPI#getMessage(String))
+     * @param player the player, whose client locale is used
+     * @param path the path of the message
+     * @return the message of the first locale in the fallback chain that has it, an empty template when none has it
+     */
+    public MessageTemplate getMessage(Player player, String path)
+    {
+        return getMessage(player.getLocale(), path);
+    }
+
+
+    /**
+     * Get a message in the given locale, prepared to be sent many times (see ConfigAPI#getMessage(String))
+     * @param locale the locale, eg. "nl_BE", "nl_be" or "nl-BE"
+     * @param path the path of the message
+     * @return the message of the first locale in the fallback chain that has it, an empty template when none has it
+     */
+    public MessageTemplate getMessage(String locale, String path)
+    {
+        ConfigAPI api = find(locale, path);
+        return api != null ? api.getMessage( path ) : MessageTemplate.EMPTY;
+    }
+
+
+    /**
+     * Get any value in the given locale, eg. a List of lines
+     * @param locale the locale, eg. "nl_BE", "nl_be" or "nl-BE"
+     * @param path the path of the option
+     * @return the value of the first locale in the fallback chain that has this option, null when none has it
+     */
+    public Object getObject(String locale, String path)
+    {
+        ConfigAPI api = find(locale, path);
+        return api != null ? api.getObject( path ) : null;
+    }
+
+
+    /**
+     * Get the instance of a single locale, without falling back to other locales
+     * The locale is loaded when it is not loaded yet. The instance should not be kept: it is closed when the locale is unloaded
+     * @param locale the locale, eg. "nl_BE", "nl_be" or "nl-BE"
+     * @return the instance or null when this locale has no file or is not a valid locale
+     */
+    public ConfigAPI getLocale(String locale)
+    {
+        String name = normalize( locale );
+        if ( ! isValid( name ))
+            return null;
+
+        ConfigAPI api = load( name );
+        evict();
+        return api;
+    }
+
+
+    /**
+     * Get the fallback chain of a locale: the locale itself, each more general locale and finally the default locale
+     * @param locale the locale, eg. "nl_BE"
+     * @return the normalized chain, eg. [nl_be, nl, en], only the default locale when the locale is not valid
+     */
+    public List<String> getFallbackChain(String locale)
+    {
+        List<String> chain = new ArrayList<String>();
+        for (String name : chainOf( locale ))
+            chain.add( name );
+        return chain;
+    }
+
+
+    /**
+     * Get every locale that is loaded right now
+     * @return a new List of normalized locales
+     */
+    public List<String> getLoadedLocales()
+    {
+        List<String> loaded = new ArrayList<String>();
+        for (Entry entry : locales.values())
+        {
+            if (entry.api != null)
+                loaded.add( entry.locale );
+        }
+        return loaded;
+    }
+
+
+    /**
+     * Get the estimated memory that all loaded locales retain
+     * @return the size in bytes
+     */
+    public long getLoadedBytes()
+    {
+        long bytes = 0;
+        for (Entry entry : locales.values())
+        {
+            if (entry.api != null)
+                bytes += entry.bytes;
+        }
+        return bytes;
+    }
+
+
+    // ------- //
+    // Loading //
+    // ------- //
+
+
+    /**
+     * Load a locale in the background, eg. when a player joins, so the first lookup does not have to read the file
+     * @param player the player whose locale (and its fallback chain) should be loaded
+     * @return a future that completes once the locales are loaded
+     */
+    public CompletableFuture<Void> preload(Player player)
+    {
+        String locale = player.getLocale();
+        return CompletableFuture.runAsync(() -> {
+            for (String name : chainOf( locale ))
+                load( name );
+            evict();
+        }, BackgroundExecutor.forkJoinPool());
+    }
+
+
+    /**
+     * Reload every locale that is loaded, files that did not change are skipped
+     * Files of locales that did not exist before are looked for again on their next request
+     */
+    public void reloadAll()
+    {
+        missing.clear();
+
+        for (Entry entry : locales.values())
+        {
+            ConfigAPI api = entry.api;
+            if (api != null)
+                api.reloadContents();
+        }
+    }
+
+
+    /**
+     * Unload every locale, they will be loaded again when they are requested
+     */
+    public void close()
+    {
+        synchronized (evictionLock)
+        {
+            for (Entry entry : locales.values())
+                entry.unload();
+            locales.clear();
+            missing.clear();
+        }
+    }
+
+
+    /**
+     * Find the first locale in the fallback chain that has an option
+     */
+    private ConfigAPI find(String locale, String path)
+    {
+        ConfigAPI found = null;
+
+        for (String name : chainOf( locale ))
+        {
+            ConfigAPI api = load( name );
+            if (api != null && api.contains( path ))
+            {
+                found = api;
+                break;
+            }
+        }
+
+        evict();
+        return found;
+    }
+
+
+    /**
+     * Get the instance of a locale, it is loaded when this is its first use
+     * @param locale the normalized and valid locale
+     * @return the instance or null when the locale has no file
+     */
+    private ConfigAPI load(String locale)
+    {
+        Entry entry = locales.get( locale );
+
+        if (entry == null)
+        {
+            if (missing.get( locale ) != null)
+                return null;
+
+            if ( ! exists( filePattern.replace("{locale}", locale) ))
+            {
+                missing.put(locale, Boolean.TRUE);
+                return null;
+            }
+
+            entry = locales.computeIfAbsent(locale, Entry::new);
+        }
+
+        entry.lastUse = clock.incrementAndGet();
+
+        ConfigAPI api = entry.api;
+        if (api != null)
+            return api;
+
+        synchronized (entry)
+        {
+            if (entry.api == null)
+            {
+                String fileName = filePattern.replace("{locale}", locale);
+
+                ConfigAPI loaded = new ConfigAPI(fileName, settings, plugin);
+                StorageStatistics statistics = loaded.getStorageStatistics();
+
+                entry.bytes = statistics.getPathBytes() + statistics.getValueBytes();
+                entry.api = loaded;
+                checkLimits = true;
+            }
+
+            return entry.api;
+        }
+    }
+
+
+    /**
+     * Check whether a locale has a file: either on the server or as a default file in the plugin's jar
+     */
+    private boolean exists(String fileName)
+    {
+        if (new File(plugin.getDataFolder(), fileName).isFile())
+            return true;
+
+        try (InputStream resource = plugin.getResource( fileName ))
+        {
+            return resource != null;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Unload the least recently used locales until the limits are respected again, the default locale is never unloaded
+     * Only does work after a locale was loaded or a limit was changed, so lookups do not pay for it
+     */
+    private void evict()
+    {
+        if ( ! checkLimits )
+            return;
+
+        synchronized (evictionLock)
+        {
+            checkLimits = false;
+
+            int maxLocales = maxLoadedLocales;
+            long maxBytes = maxLoadedBytes;
+
+            while (true)
+            {
+                int loaded = 0;
+                long bytes = 0;
+                Entry oldest = null;
+
+                for (Entry entry : locales.values())
+                {
+                    if (entry.api == null)
+                        continue;
+
+                    loaded++;
+                    bytes += entry.bytes;
+
+                    if ( ! entry.locale.equals( defaultLocale ) && (oldest == null || entry.lastUse < oldest.lastUse))
+                        oldest = entry;
+                }
+
+                if (oldest == null || (loaded <= maxLocales && bytes <= maxBytes))
+                    return;
+
+                oldest.unload();
+            }
+        }
+    }
+
+
+    // ------- //
+    // Locales //
+    // ------- //
+
+
+    /**
+     * Get the fallback chain of a locale, the chains of the most recently used locales are remembered
+     * An invalid locale only falls back to the default locale
+     */
+    private String[] chainOf(String locale)
+    {
+        String name = normalize( locale );
+
+        String[] chain = chains.get( name );
+        if (chain != null)
+            return chain;
+
+        if ( ! isValid( name ))
+            return new String[] { defaultLocale };
+
+        List<String> names = new ArrayList<String>();
+        String general = name;
+
+        while ( ! general.isEmpty() )
+        {
+            names.add( general );
+            int separator = general.lastIndexOf('_');
+            general = separator > 0 ? general.substring(0, separator) : "";
+        }
+
+        if ( ! names.contains( defaultLocale ) )
+            names.add( defaultLocale );
+
+        chain = names.toArray( new String[0] );
+        chains.put(name, chain);
+        return chain;
+    }
+
+
+    /**
+     * Bring a locale to the form of Minecraft clients: lower case with underscores, eg. "nl-BE" becomes "nl_be"
+     */
+    private static String normalize(String locale)
+    {
+        return locale == null ? "" : locale.trim().replace('-', '_').toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Create a thread safe map that forgets its least recently used entry once it holds more than the given amount
+     */
+    private static <V> Map<String, V> recentlyUsed(int maxSize)
+    {
+        return Collections.synchronizedMap( new LinkedHashMap<String, V>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest)
+            {
+                return size() > maxSize;
+            }
+        });
+    }
+
+
+    /**
+     * Check whether a normalized locale can be used in a file name, eg. "en" or "nl_be" but not "../config"
+     */
+    private static boolean isValid(String locale)
+    {
+        return VALID_LOCALE.matcher( locale ).matches();
+    }
+
+
+    private static final class Entry {
+
+        private final String locale;            // The normalized locale
+        private volatile ConfigAPI api;         // The loaded file, null when it is not loaded (yet)
+        private volatile long lastUse;          // The clock value of the last lookup in this locale
+        private long bytes;                     // The estimated memory of the loaded file
+
+        private Entry(String locale)
+        {
+            this.locale = locale;
+        }
+
+        private synchronized void unload()
+        {
+            ConfigAPI loaded = api;
+            api = null;
+
+            if (loaded != null)
+                loaded.close();
+        }
+    }
+}
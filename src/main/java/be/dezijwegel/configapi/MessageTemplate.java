@@ -0,0 +1,259 @@
+package be.dezijwegel.configapi;
+
+import org.bukkit.ChatColor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public final class MessageTemplate {
+
+    // A message that is prepared once so it can be sent many times at almost no cost, obtained through ConfigAPI#getMessage(String)
+    // Color codes ('&') are translated when the template is compiled, placeholders such as {player} are split from the text up front
+    // The text is stored as literals with a slot between each pair: literal, slot, literal, slot, ..., literal
+    // Rendering appends the literals and the values of the slots to a StringBuilder which is reused by each thread
+
+    static final MessageTemplate EMPTY = compile("");
+
+    private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial( () -> new StringBuilder(256) );
+
+    private final String[] literals;        // The fixed text around the slots, one more than there are slots
+    private final String[] slots;           // The placeholder name of each slot, without braces
+    private final String text;              // The translated text with its placeholders, returned as is when there are no slots
+    private final int literalLength;        // The total length of all literals
+
+
+    private MessageTemplate(String[] literals, String[] slots, String text)
+    {
+        this.literals = literals;
+        this.slots = slots;
+        this.text = text;
+
+        int length = 0;
+        for (String literal : literals)
+            length += literal.length();
+        this.literalLength = length;
+    }
+
+
+    /**
+     * Compile a message: translate its color codes and find its placeholders
+     * A placeholder is a name of letters, digits, '_', '-' or '.' between braces, other braces are kept as text
+     * @param message the raw message
+     * @return the compiled template
+     */
+    static MessageTemplate compile(String message)
+    {
+        String text = ChatColor.translateAlternateColorCodes('&', message);
+
+        List<String> literals = new ArrayList<String>();
+        List<String> slots = new ArrayList<String>();
+
+        int literalStart = 0;
+        int open = text.indexOf('{');
+
+        while (open >= 0)
+        {
+            int close = text.indexOf('}', open + 1);
+            if (close < 0)
+                break;
+
+            if (isPlaceholderName(text, open + 1, close))
+            {
+                literals.add( text.substring(literalStart, open) );
+                slots.add( text.substring(open + 1, close) );
+                literalStart = close + 1;
+                open = text.indexOf('{', literalStart);
+            }
+            else
+            {
+                open = text.indexOf('{', open + 1);
+            }
+        }
+
+        literals.add( text.substring( literalStart ));
+
+        return new MessageTemplate(literals.toArray( new String[0] ), slots.toArray( new String[0] ), text);
+    }
+
+
+    private static boolean isPlaceholderName(String text, int from, int to)
+    {
+        if (from == to)
+            return false;
+
+        for (int i = from; i < to; i++)
+        {
+            char c = text.charAt( i );
+            if ( ! (Character.isLetterOrDigit( c ) || c == '_' || c == '-' || c == '.') )
+                return false;
+        }
+
+        return true;
+    }
+
+
+    // --------- //
+    // Rendering //
+    // --------- //
+
+
+    /**
+     * Get the message without filling in its placeholders, this does not create a new String
+     * @return the message with translated colors, placeholders are left as they are
+     */
+    public String render()
+    {
+        return text;
+    }
+
+
+    /**
+     * Get the message with one placeholder filled in
+     * @param placeholder the name of the placeholder, without braces
+     * @param value its value
+     * @return the message, other placeholders are left as they are
+     */
+    public String render(String placeholder, Object value)
+    {
+        if (slots.length == 0)
+            return text;
+
+        StringBuilder builder = prepare(16 * slots.length);
+
+        for (int i = 0; i < slots.length; i++)
+        {
+            builder.append( literals[ i ] );
+            if (slots[ i ].equals( placeholder ))
+                builder.append( value );
+            else
+                builder.append('{').append( slots[ i ] ).append('}');
+        }
+        builder.append( literals[ slots.length ] );
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Get the message with its placeholders filled in
+     * @param placeholdersAndValues pairs of a placeholder name (without braces) and its value, eg. "player", name, "amount", 5
+     * @return the message, placeholders without a value are left as they are
+     */
+    public String render(Object... placeholdersAndValues)
+    {
+        if (slots.length == 0)
+            return text;
+
+        StringBuilder builder = prepare(16 * slots.length);
+
+        for (int i = 0; i < slots.length; i++)
+        {
+            builder.append( literals[ i ] );
+            appendSlot(builder, slots[ i ], placeholdersAndValues);
+        }
+        builder.append( literals[ slots.length ] );
+
+        return builder.toString();
+    }
+
+
+    /**
+     * Get the message with its placeholders filled in
+     * @param values the value of each placeholder, by name (without braces)
+     * @return the message, placeholders without a value are left as they are
+     */
+    public String render(Map<String, ?> values)
+    {
+        if (slots.length == 0)
+            return text;
+
+        StringBuilder builder = prepare(16 * slots.length);
+        renderTo(builder, values);
+        return builder.toString();
+    }
+
+
+    /**
+     * Append the message with its placeholders filled in to a StringBuilder
+     * @param builder the builder to append to
+     * @param values the value of each placeholder, by name (without braces)
+     */
+    public void renderTo(StringBuilder builder, Map<String, ?> values)
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            builder.append( literals[ i ] );
+
+            Object value = values.get( slots[ i ] );
+            if (value != null || values.containsKey( slots[ i ] ))
+                builder.append( value );
+            else
+                builder.append('{').append( slots[ i ] ).append('}');
+        }
+        builder.append( literals[ slots.length ] );
+    }
+
+
+    private static void appendSlot(StringBuilder builder, String slot, Object[] placeholdersAndValues)
+    {
+        for (int i = 0; i + 1 < placeholdersAndValues.length; i += 2)
+        {
+            if (slot.equals( placeholdersAndValues[ i ] ))
+            {
+                builder.append( placeholdersAndValues[ i + 1 ] );
+                return;
+            }
+        }
+
+        builder.append('{').append( slot ).append('}');
+    }
+
+
+    /**
+     * Get the StringBuilder of this thread, emptied and large enough for this message
+     * @param valueLength the expected length of all values together
+     * @return the builder
+     */
+    private StringBuilder prepare(int valueLength)
+    {
+        StringBuilder builder = builders.get();
+        builder.setLength( 0 );
+        builder.ensureCapacity(literalLength + valueLength);
+        return builder;
+    }
+
+
+    // ------------ //
+    // Getting data //
+    // ------------ //
+
+
+    /**
+     * Get the names of the placeholders in this message, in order of appearance
+     * @return an unmodifiable list of names without braces, a name is included once for each time it appears
+     */
+    public List<String> getPlaceholders()
+    {
+        return Collections.unmodifiableList( Arrays.asList( slots ));
+    }
+
+
+    /**
+     * Check whether this message contains placeholders
+     * @return true if there is at least one placeholder
+     */
+    public boolean hasPlaceholders()
+    {
+        return slots.length > 0;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return text;
+    }
+}
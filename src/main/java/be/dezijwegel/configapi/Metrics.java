@@ -0,0 +1,367 @@
+package be.dezijwegel.configapi;
+
+import be.dezijwegel.configapi.utility.DisableListener;
+import be.dezijwegel.configapi.utility.Logger;
+import org.bukkit.plugin.Plugin;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+final class Metrics implements ConfigMetricsMXBean {
+
+    // The counters behind ConfigAPI#getMetrics(), only updated while collectMetrics is enabled
+    // Every counter is a LongAdder: threads that read options at the same time increment different cells instead of contending on one value
+    // Paths are only tracked up to a limit, so a plugin that looks up generated paths cannot grow these maps without bounds
+
+    static final int STRING     = 0;
+    static final int MESSAGE    = 1;
+    static final int INT        = 2;
+    static final int BOOLEAN    = 3;
+    static final int DOUBLE     = 4;
+    static final int LONG       = 5;
+    static final int ITEM_STACK = 6;
+    static final int OBJECT     = 7;
+
+    private static final String[] TYPE_NAMES = {"String", "Message", "Integer", "Boolean", "Double", "Long", "ItemStack", "Object"};
+
+    private static final int MAX_TRACKED_PATHS = 1024;      // The maximum amount of paths that are counted separately
+    private static final int HOTTEST_PATHS = 20;            // The amount of paths that is reported as hottest
+
+    private final LongAdder[] lookups = newAdders( TYPE_NAMES.length );     // Getter calls, by type
+    private final LongAdder[] misses = newAdders( TYPE_NAMES.length );      // Getter calls that returned the default value, by type
+    private final Map<String, LongAdder> pathLookups = new ConcurrentHashMap<String, LongAdder>();  // Getter calls, by path
+    private final Map<String, LongAdder> pathMisses = new ConcurrentHashMap<String, LongAdder>();   // Misses, by path
+
+    private final LongAdder reloads = new LongAdder();
+    private final LongAdder skippedReloads = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder diffNanos = new LongAdder();
+    private final LongAdder migrateNanos = new LongAdder();
+    private final LongAdder validateNanos = new LongAdder();
+    private final LongAdder mergeNanos = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    private ObjectName registeredName;      // The name under which this is registered for JMX, null when it is not registered
+    private Plugin registeredPlugin;        // The plugin whose disable hook unregisters these metrics, null when not registered
+    private Runnable unregisterHook;        // The disable hook, kept to cancel it when unregistering earlier
+
+
+    private static LongAdder[] newAdders(int amount)
+    {
+        LongAdder[] adders = new LongAdder[ amount ];
+        for (int i = 0; i < amount; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+
+    // --------- //
+    // Recording //
+    // --------- //
+
+
+    /**
+     * Count a getter call
+     * @param type the requested type, one of the constants of this class
+     * @param path the requested path
+     */
+    void lookup(int type, String path)
+    {
+        lookups[ type ].increment();
+        increment(pathLookups, path);
+    }
+
+
+    /**
+     * Count a getter call that did not find an option of the requested type
+     * @param type the requested type, one of the constants of this class
+     * @param path the requested path
+     */
+    void miss(int type, String path)
+    {
+        misses[ type ].increment();
+        increment(pathMisses, path);
+    }
+
+
+    /**
+     * Count a reload that parsed the live config
+     * @param timings the time each stage of the reload took
+     * @param bytes the size of the live config that was read
+     */
+    void reload(ReloadTimings timings, long bytes)
+    {
+        reloads.increment();
+        parseNanos.add( timings.getParseNanos() + timings.getFlattenNanos() );
+        diffNanos.add( timings.getDiffNanos() );
+        migrateNanos.add( timings.getMigrateNanos() );
+        validateNanos.add( timings.getValidateNanos() );
+        mergeNanos.add( timings.getMergeNanos() );
+        bytesRead.add( Math.max(0, bytes) );
+    }
+
+
+    /**
+     * Count a reload that was skipped because nothing changed
+     */
+    void skippedReload()
+    {
+        skippedReloads.increment();
+    }
+
+
+    private static void increment(Map<String, LongAdder> counters, String path)
+    {
+        LongAdder counter = counters.get( path );
+
+        if (counter == null)
+        {
+            if (counters.size() >= MAX_TRACKED_PATHS)
+                return;
+            counter = counters.computeIfAbsent(path, key -> new LongAdder());
+        }
+
+        counter.increment();
+    }
+
+
+    // --- //
+    // JMX //
+    // --- //
+
+
+    /**
+     * Register these metrics with the platform MBeanServer, nothing happens when they are already registered
+     * They are unregistered again when the plugin is disabled
+     * @param plugin the plugin that owns the config file
+     * @param fileName the name of the config file
+     */
+    synchronized void register(Plugin plugin, String fileName)
+    {
+        if (registeredName != null)
+            return;
+
+        try {
+            ObjectName name = new ObjectName("be.dezijwegel.configapi:type=ConfigAPI,plugin=" + ObjectName.quote( plugin.getName() ) + ",file=" + ObjectName.quote( fileName ));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            if (server.isRegistered( name ))
+            {
+                Logger.log("Metrics of " + fileName + " are already registered for JMX by another instance");
+                return;
+            }
+
+            server.registerMBean(this, name);
+            registeredName = name;
+            registeredPlugin = plugin;
+            unregisterHook = this::unregister;
+            DisableListener.onDisable(plugin, unregisterHook);
+        } catch (JMException | SecurityException ex) {
+            Logger.log("Could not register the metrics of " + fileName + " for JMX: " + ex.getMessage());
+        }
+    }
+
+
+    synchronized void unregister()
+    {
+        if (registeredName == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( registeredName );
+        } catch (JMException | SecurityException ex) {
+            Logger.log("Could not unregister " + registeredName + ": " + ex.getMessage());
+        }
+
+        DisableListener.cancel(registeredPlugin, unregisterHook);
+        registeredName = null;
+        registeredPlugin = null;
+        unregisterHook = null;
+    }
+
+
+    // ------- //
+    // Reading //
+    // ------- //
+
+
+    /**
+     * Create an immutable copy of the current counters
+     * @param lastReload the timings of the most recent reload
+     * @return the metrics
+     */
+    ConfigMetrics snapshot(ReloadTimings lastReload)
+    {
+        return new ConfigMetrics(getLookupsPerType(), getMissesPerType(), sorted( pathLookups, Integer.MAX_VALUE ), sorted( pathMisses, Integer.MAX_VALUE ),
+                reloads.sum(), skippedReloads.sum(), parseNanos.sum(), diffNanos.sum(), migrateNanos.sum(), validateNanos.sum(), mergeNanos.sum(), bytesRead.sum(), lastReload);
+    }
+
+
+    @Override
+    public long getTotalLookups()
+    {
+        return sum( lookups );
+    }
+
+
+    @Override
+    public long getTotalMisses()
+    {
+        return sum( misses );
+    }
+
+
+    @Override
+    public Map<String, Long> getLookupsPerType()
+    {
+        return perType( lookups );
+    }
+
+
+    Map<String, Long> getMissesPerType()
+    {
+        return perType( misses );
+    }
+
+
+    @Override
+    public Map<String, Long> getMissesPerPath()
+    {
+        return sorted(pathMisses, Integer.MAX_VALUE);
+    }
+
+
+    @Override
+    public Map<String, Long> getHottestPaths()
+    {
+        return sorted(pathLookups, HOTTEST_PATHS);
+    }
+
+
+    @Override
+    public long getReloads()
+    {
+        return reloads.sum();
+    }
+
+
+    @Override
+    public long getSkippedReloads()
+    {
+        return skippedReloads.sum();
+    }
+
+
+    @Override
+    public long getParseNanos()
+    {
+        return parseNanos.sum();
+    }
+
+
+    @Override
+    public long getDiffNanos()
+    {
+        return diffNanos.sum();
+    }
+
+
+    @Override
+    public long getMigrateNanos()
+    {
+        return migrateNanos.sum();
+    }
+
+
+    @Override
+    public long getValidateNanos()
+    {
+        return validateNanos.sum();
+    }
+
+
+    @Override
+    public long getMergeNanos()
+    {
+        return mergeNanos.sum();
+    }
+
+
+    @Override
+    public long getBytesRead()
+    {
+        return bytesRead.sum();
+    }
+
+
+    @Override
+    public void reset()
+    {
+        for (int i = 0; i < TYPE_NAMES.length; i++)
+        {
+            lookups[i].reset();
+            misses[i].reset();
+        }
+
+        pathLookups.clear();
+        pathMisses.clear();
+
+        reloads.reset();
+        skippedReloads.reset();
+        parseNanos.reset();
+        diffNanos.reset();
+        migrateNanos.reset();
+        validateNanos.reset();
+        mergeNanos.reset();
+        bytesRead.reset();
+    }
+
+
+    private static long sum(LongAdder[] adders)
+    {
+        long sum = 0;
+        for (LongAdder adder : adders)
+            sum += adder.sum();
+        return sum;
+    }
+
+
+    private static Map<String, Long> perType(LongAdder[] adders)
+    {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < TYPE_NAMES.length; i++)
+            counts.put(TYPE_NAMES[i], adders[i].sum());
+        return counts;
+    }
+
+
+    /**
+     * Copy the counters of a map, sorted from the highest to the lowest count
+     * @param counters the counters by path
+     * @param limit the maximum amount of paths in the result
+     * @return an ordered map of paths to counts
+     */
+    private static Map<String, Long> sorted(Map<String, LongAdder> counters, int limit)
+    {
+        List<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>( counters.size() );
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet())
+            entries.add( new AbstractMap.SimpleImmutableEntry<String, Long>(entry.getKey(), entry.getValue().sum()) );
+
+        entries.sort( Collections.reverseOrder( Map.Entry.comparingByValue() ));
+
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < entries.size() && i < limit; i++)
+            result.put(entries.get(i).getKey(), entries.get(i).getValue());
+        return result;
+    }
+}
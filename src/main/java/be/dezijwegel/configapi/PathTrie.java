@@ -0,0 +1,180 @@
+package be.dezijwegel.configapi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+final class PathTrie {
+
+    // The paths of a compact ValueTable, stored as a tree of segments instead of one String per full path
+    // messages.shop.buy.success and messages.shop.sell.success share the nodes of "messages" and "shop"
+    // Every segment is interned, so segments that also occur in other tables (eg. the same keys in another language file) are stored once
+    // A path is compared to a node by walking up its parents, a full path String is only created when it is explicitly requested
+
+    private final String[] segments;        // The segment of each node, eg. "shop"
+    private final int[] parents;            // The parent node of each node, -1 for top level nodes
+    private final int[] entryNodes;         // The node of each entry of the table
+    private final int[] hashes;             // The hash code of each entry's full path
+
+
+    private PathTrie(String[] segments, int[] parents, int[] entryNodes, int[] hashes)
+    {
+        this.segments = segments;
+        this.parents = parents;
+        this.entryNodes = entryNodes;
+        this.hashes = hashes;
+    }
+
+
+    /**
+     * Store a list of full paths as a tree of segments
+     * @param paths the full paths, separated by '.'
+     * @param size the amount of paths to use
+     * @return the tree, the entry index of each path is its index in the array
+     */
+    static PathTrie of(String[] paths, int size)
+    {
+        Map<String, Integer> nodesByPath = new HashMap<String, Integer>();      // Only used while building
+        String[] segments = new String[ Math.max(size, 8) ];
+        int[] parents = new int[ segments.length ];
+        int nodes = 0;
+
+        int[] entryNodes = new int[ size ];
+        int[] hashes = new int[ size ];
+
+        for (int entry = 0; entry < size; entry++)
+        {
+            String path = paths[ entry ];
+            int parent = -1;
+            int start = 0;
+
+            while (true)
+            {
+                int dot = path.indexOf('.', start);
+                int end = dot < 0 ? path.length() : dot;
+                String prefix = dot < 0 ? path : path.substring(0, end);
+
+                Integer node = nodesByPath.get( prefix );
+                if (node == null)
+                {
+                    if (nodes == segments.length)
+                    {
+                        segments = Arrays.copyOf(segments, nodes * 2);
+                        parents = Arrays.copyOf(parents, nodes * 2);
+                    }
+
+                    node = nodes++;
+                    segments[ node ] = Interner.intern( path.substring(start, end) );
+                    parents[ node ] = parent;
+                    nodesByPath.put(prefix, node);
+                }
+
+                parent = node;
+                if (dot < 0)
+                    break;
+                start = dot + 1;
+            }
+
+            entryNodes[ entry ] = parent;
+            hashes[ entry ] = path.hashCode();
+        }
+
+        return new PathTrie(Arrays.copyOf(segments, nodes), Arrays.copyOf(parents, nodes), entryNodes, hashes);
+    }
+
+
+    /**
+     * Check whether an entry has the given full path, without creating its path
+     * @param entry the entry index
+     * @param path the full path
+     * @param hash the hash code of the full path
+     * @return true if the path of the entry equals the given path
+     */
+    boolean matches(int entry, String path, int hash)
+    {
+        if (hashes[ entry ] != hash)
+            return false;
+
+        int node = entryNodes[ entry ];
+        int end = path.length();
+
+        while (true)
+        {
+            String segment = segments[ node ];
+            int start = end - segment.length();
+
+            if (start < 0 || ! path.regionMatches(start, segment, 0, segment.length()))
+                return false;
+
+            node = parents[ node ];
+            if (node < 0)
+                return start == 0;
+
+            if (start == 0 || path.charAt(start - 1) != '.')
+                return false;
+
+            end = start - 1;
+        }
+    }
+
+
+    /**
+     * Create the full path of an entry
+     * @param entry the entry index
+     * @return a new String, eg. "messages.shop.buy.success"
+     */
+    String pathAt(int entry)
+    {
+        int node = entryNodes[ entry ];
+        char[] path = new char[ pathLength( entry ) ];
+        int end = path.length;
+
+        while (true)
+        {
+            String segment = segments[ node ];
+            int start = end - segment.length();
+            segment.getChars(0, segment.length(), path, start);
+
+            node = parents[ node ];
+            if (node < 0)
+                return new String( path );
+
+            path[ start - 1 ] = '.';
+            end = start - 1;
+        }
+    }
+
+
+    /**
+     * Get the length of an entry's full path, without creating it
+     * @param entry the entry index
+     * @return the amount of characters
+     */
+    private int pathLength(int entry)
+    {
+        int length = -1;
+        for (int node = entryNodes[ entry ]; node >= 0; node = parents[ node ])
+            length += segments[ node ].length() + 1;
+        return length;
+    }
+
+
+    /**
+     * Estimate the memory this tree retains, every distinct segment String is counted once
+     * @return the estimated amount of bytes
+     */
+    long estimateBytes()
+    {
+        long bytes = 4L * segments.length + 4L * parents.length + 4L * entryNodes.length + 4L * hashes.length;
+
+        Map<String, Boolean> counted = new IdentityHashMap<String, Boolean>();
+        for (int node = 0; node < segments.length; node++)
+        {
+            if (counted.put(segments[ node ], Boolean.TRUE) == null)
+                bytes += StorageStatistics.stringBytes( segments[ node ] );
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,54 @@
+package be.dezijwegel.configapi;
+
+public final class ReloadStatistics {
+
+    // Counts how often an instance was asked to reload, and how many of those reloads were skipped
+    // A reload is skipped when the live config did not change since it was last loaded
+
+    private final long performed;       // The amount of reloads that parsed the live config
+    private final long skipped;         // The amount of reloads that were skipped because nothing changed
+
+
+    ReloadStatistics(long performed, long skipped)
+    {
+        this.performed = performed;
+        this.skipped = skipped;
+    }
+
+
+    /**
+     * Get the amount of reloads that actually parsed and loaded the live config (forced reloads included)
+     * @return the amount of performed reloads
+     */
+    public long getPerformedReloads()
+    {
+        return performed;
+    }
+
+
+    /**
+     * Get the amount of reloads that were skipped because the live config did not change
+     * @return the amount of skipped reloads
+     */
+    public long getSkippedReloads()
+    {
+        return skipped;
+    }
+
+
+    /**
+     * Get the amount of times a reload was requested
+     * @return the sum of performed and skipped reloads
+     */
+    public long getRequestedReloads()
+    {
+        return performed + skipped;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ReloadStatistics{performed=" + performed + ", skipped=" + skipped + "}";
+    }
+}
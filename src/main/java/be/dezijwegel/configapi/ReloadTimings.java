@@ -0,0 +1,119 @@
+package be.dezijwegel.configapi;
+
+public final class ReloadTimings {
+
+    // The time spent in each stage of a single reload, in nanoseconds
+    // A stage that did not run during the reload is reported as zero
+
+    static final ReloadTimings NONE = new ReloadTimings(0, 0, 0, 0, 0, 0, 0);
+
+    private final long parseNanos;              // Parsing the live and default files
+    private final long flattenNanos;            // Flattening both parsed files into full paths
+    private final long diffNanos;               // Comparing both files: missing, redundant and changed options are found at once
+    private final long migrateNanos;            // Writing the missing options to the live config, its backup included
+    private final long validateNanos;           // Loading the schema and validating the live values against it
+    private final long reportNanos;             // Reporting missing and redundant options
+    private final long mergeNanos;              // Merging both files into the loaded contents
+
+
+    ReloadTimings(long parseNanos, long flattenNanos, long diffNanos, long migrateNanos, long validateNanos, long reportNanos, long mergeNanos)
+    {
+        this.parseNanos = parseNanos;
+        this.flattenNanos = flattenNanos;
+        this.diffNanos = diffNanos;
+        this.migrateNanos = migrateNanos;
+        this.validateNanos = validateNanos;
+        this.reportNanos = reportNanos;
+        this.mergeNanos = mergeNanos;
+    }
+
+
+    /**
+     * Get the time spent parsing the live and default config files
+     * @return the time in nanoseconds
+     */
+    public long getParseNanos()
+    {
+        return parseNanos;
+    }
+
+
+    /**
+     * Get the time spent flattening the parsed files into full paths
+     * @return the time in nanoseconds
+     */
+    public long getFlattenNanos()
+    {
+        return flattenNanos;
+    }
+
+
+    /**
+     * Get the time spent comparing the live and default config
+     * Missing, redundant and changed options are all found in this stage
+     * @return the time in nanoseconds
+     */
+    public long getDiffNanos()
+    {
+        return diffNanos;
+    }
+
+
+    /**
+     * Get the time spent migrating the live config: reading the default file, writing the backup and the new live config
+     * @return the time in nanoseconds, zero when nothing was migrated
+     */
+    public long getMigrateNanos()
+    {
+        return migrateNanos;
+    }
+
+
+    /**
+     * Get the time spent validating the live values against the schema of the default config, loading the schema included
+     * @return the time in nanoseconds, zero when validateSchema is disabled
+     */
+    public long getValidateNanos()
+    {
+        return validateNanos;
+    }
+
+
+    /**
+     * Get the time spent reporting missing and redundant options to the console
+     * @return the time in nanoseconds
+     */
+    public long getReportNanos()
+    {
+        return reportNanos;
+    }
+
+
+    /**
+     * Get the time spent merging the live and default values into memory
+     * @return the time in nanoseconds
+     */
+    public long getMergeNanos()
+    {
+        return mergeNanos;
+    }
+
+
+    /**
+     * Get the time spent in all stages combined
+     * @return the time in nanoseconds
+     */
+    public long getTotalNanos()
+    {
+        return parseNanos + flattenNanos + diffNanos + migrateNanos + validateNanos + reportNanos + mergeNanos;
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "ReloadTimings{parse=" + parseNanos + "ns, flatten=" + flattenNanos + "ns, diff=" + diffNanos
+                + "ns, migrate=" + migrateNanos + "ns, validate=" + validateNanos + "ns, report=" + reportNanos + "ns, merge=" + mergeNanos
+                + "ns, total=" + getTotalNanos() + "ns}";
+    }
+}
@@ -0,0 +1,103 @@
+package be.dezijwegel.configapi;
+
+public final class SchemaViolation {
+
+    // A value of the live config that did not match the schema of the default config
+    // Either the value could be converted to the expected type (eg. "5" where a whole number is expected) and is used as converted,
+    // or it could not be converted or breaks a constraint, in which case the default value is used instead
+
+    private final String path;              // The full path of the option
+    private final String expected;          // A description of what was expected, eg. "an Integer between 1 and 10"
+    private final Object found;             // The value in the live config
+    private final Object used;              // The value that was loaded instead
+    private final boolean converted;        // True if the found value was converted, false if the default value is used
+
+
+    SchemaViolation(String path, String expected, Object found, Object used, boolean converted)
+    {
+        this.path = path;
+        this.expected = expected;
+        this.found = found;
+        this.used = used;
+        this.converted = converted;
+    }
+
+
+    /**
+     * Get the full path of the option
+     * @return the path, eg. "spawn.radius"
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+
+    /**
+     * Get a description of the value that was expected
+     * @return eg. "an Integer between 1 and 10" or "one of easy, normal, hard"
+     */
+    public String getExpected()
+    {
+        return expected;
+    }
+
+
+    /**
+     * Get the value that was found in the live config
+     * @return the live value
+     */
+    public Object getFound()
+    {
+        return found;
+    }
+
+
+    /**
+     * Get the value that is loaded for this option
+     * @return the converted live value or the default value
+     */
+    public Object getUsed()
+    {
+        return used;
+    }
+
+
+    /**
+     * Check whether the live value could be converted to the expected type
+     * @return true if the converted live value is used, false if the default value is used
+     */
+    public boolean isConverted()
+    {
+        return converted;
+    }
+
+
+    /**
+     * Get a readable description of this violation
+     * @return eg. "spawn.radius: expected an Integer between 1 and 10 but found 50, the default value 5 is used instead"
+     */
+    public String getMessage()
+    {
+        if (converted)
+            return path + ": expected " + expected + " but found " + format( found ) + ", it is used as " + format( used );
+        else
+            return path + ": expected " + expected + " but found " + format( found ) + ", the default value " + format( used ) + " is used instead";
+    }
+
+
+    private static String format(Object value)
+    {
+        if (value instanceof LazyObject)
+            value = ((LazyObject) value).get();
+
+        return value instanceof String ? "\"" + value + "\"" : String.valueOf( value );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "SchemaViolation{" + getMessage() + "}";
+    }
+}
@@ -0,0 +1,97 @@
+package be.dezijwegel.configapi;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public enum Setting {
+
+    // Every option of Settings, see the Settings class for a description of each
+    // Each setting is stored as one bit of a long, so checking a setting only tests a bit
+
+    // Logging settings
+    DO_DEBUG_LOGGING        ("doDebugLogging",          false),
+    REPORT_MISSING_OPTIONS  ("reportMissingOptions",    true),
+    REPORT_REDUNDANT_OPTIONS("reportRedundantOptions",  false),
+    REPORT_NEW_CONFIG       ("reportNewConfig",         true),
+    USE_COLORS              ("useColors",               true),
+
+    // Internal working settings
+    AUTO_LOAD_VALUES        ("autoLoadValues",          true),
+    LOAD_DEFAULTS           ("loadDefaults",            true),
+    USE_BINARY_CACHE        ("useBinaryCache",          false),
+    USE_STREAMING_LOADER    ("useStreamingLoader",      false),
+    DESERIALIZE_LAZILY      ("deserializeLazily",       false),
+    COLLECT_METRICS         ("collectMetrics",          false),
+    MIGRATE_LIVE_CONFIG     ("migrateLiveConfig",       false),
+    KEEP_REDUNDANT_AS_COMMENT("keepRedundantAsComment",  false),
+    VALIDATE_SCHEMA         ("validateSchema",          false),
+    COMPACT_STORAGE         ("compactStorage",          false),
+    COMPACT_STRINGS         ("compactStrings",          false);
+
+    private static final Map<String, Setting> byName = new HashMap<String, Setting>();     // Every setting by its lower case name
+
+    static
+    {
+        for (Setting setting : values())
+            byName.put(setting.name.toLowerCase(), setting);
+    }
+
+    private final String name;              // The name that is used by the String based methods of Settings
+    private final boolean defaultValue;     // The value of a new Settings instance
+    final long mask;                        // The bit of this setting
+
+
+    Setting(String name, boolean defaultValue)
+    {
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.mask = 1L << ordinal();
+    }
+
+
+    /**
+     * Find a setting by its name, the case of the name is ignored
+     * @param name the name of the setting, eg. "doDebugLogging"
+     * @return the setting or null if no setting has this name
+     */
+    public static Setting byName(String name)
+    {
+        return byName.get( name.toLowerCase() );
+    }
+
+
+    /**
+     * Get the bits of all default values
+     * @return a bitmask in which the default value of each setting is set
+     */
+    static long defaultFlags()
+    {
+        long flags = 0;
+        for (Setting setting : values())
+        {
+            if (setting.defaultValue)
+                flags |= setting.mask;
+        }
+        return flags;
+    }
+
+
+    /**
+     * Get the name of this setting as it is used by the String based methods of Settings
+     * @return the name, eg. "doDebugLogging"
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+
+    /**
+     * Get the value of this setting in a new Settings instance
+     * @return the default value
+     */
+    public boolean getDefaultValue()
+    {
+        return defaultValue;
+    }
+}
@@ -2,14 +2,18 @@ package be.dezijwegel.configapi;
 
 import be.dezijwegel.configapi.utility.Logger;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Settings {
 
     // This class is used to store the settings of ConfigAPI
+    // Each setting (see the Setting enum) is one bit of a long, checking a setting is a single bit test
+    // Instances made by a Builder are immutable: they can be shared freely and changing them throws an UnsupportedOperationException
 
-    private Map<String, Boolean> settings;  // This Map will contain all settings of ConfigAPI
+    private volatile long flags;            // The value of every setting, one bit per Setting
+    private final boolean immutable;        // Whether this instance was made by a Builder and cannot be changed
 
     /**
      * This constructor will initialize the default values
@@ -23,22 +27,25 @@ public class Settings {
      * | useColors              | true  | Choose whether console output should be coloured
      * | autoLoadValues         | true  | Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
      * | loadDefaults           | true  | Load default values (from the default config) where live config values are missing
+     * | useBinaryCache         | false | Store a compiled binary copy of the loaded values in the data folder and use it on the next load while the config files are unchanged
+     * | useStreamingLoader     | false | Flatten the live config straight from the YAML parser instead of building a YamlConfiguration first. Files with anchors, aliases or merge keys are still loaded through YamlConfiguration
+     * | deserializeLazily      | false | Keep serialized objects (ItemStacks, Locations, ...) in their raw form until they are first read. Only has effect when useStreamingLoader is enabled
+     * | collectMetrics         | false | Count lookups, misses and reload times, available through ConfigAPI#getMetrics() and JMX
+     * | migrateLiveConfig      | false | Add missing options to the live config (with the comments of the default config) and keep a backup, reloads skip comparing both files once the config-version option matches
+     * | keepRedundantAsComment | false | Comment out options of the live config that are not in the default config while migrating. Only has effect when migrateLiveConfig is enabled
+     * | validateSchema         | false | Check the type and constraints (see ConfigSchema) of every live option once per reload, convert values such as "5" or "yes" where possible and use the default value otherwise
+     * | compactStorage         | false | Store each path segment once and share equal String values between all instances, for files with many options (eg. language files)
+     * | compactStrings         | false | Keep String values that only use Latin-1 characters as bytes (saves memory on Java 8), the most recently read Strings are cached
      * |------------------------| ------| -----
      */
     public Settings() {
+        this(Setting.defaultFlags(), false);
+    }
 
-        settings = new HashMap<String, Boolean>();
-
-        // Logging settings
-        settings.put("dodebuglogging", false);          // Allows debugging messages to be sent to troubleshoot a config file and the API usage. This is meant as a developer tool and logs a message when an issue occurs
-        settings.put("reportmissingoptions", true);     // On each config file reload, report missing options to the console (useful for server owners)
-        settings.put("reportredundantoptions", false);  // On each config file reload, Report options which are in the live config but not in the default config
-        settings.put("reportnewconfig", true);          // On each config file reload, report the action of copying a new config file
-        settings.put("usecolors", true);                // Choose whether console output should be coloured
 
-        // Internal working settings
-        settings.put("autoloadvalues", true);  // Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
-        settings.put("loaddefaults", true);    // Load default values (from the default config) where live config values are missing
+    private Settings(long flags, boolean immutable) {
+        this.flags = flags;
+        this.immutable = immutable;
     }
 
 
@@ -61,17 +68,26 @@ public class Settings {
      * | useColors              | Choose whether console output should be coloured
      * | autoLoadValues         | Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
      * | loadDefaults           | Load default values (from the default config) where live config values are missing
+     * | useBinaryCache         | Store a compiled binary copy of the loaded values in the data folder and use it on the next load while the config files are unchanged
+     * | useStreamingLoader     | Flatten the live config straight from the YAML parser instead of building a YamlConfiguration first. Files with anchors, aliases or merge keys are still loaded through YamlConfiguration
+     * | deserializeLazily      | Keep serialized objects (ItemStacks, Locations, ...) in their raw form until they are first read. Only has effect when useStreamingLoader is enabled
+     * | collectMetrics         | Count lookups, misses and reload times, available through ConfigAPI#getMetrics() and JMX
+     * | migrateLiveConfig      | Add missing options to the live config (with the comments of the default config) and keep a backup, reloads skip comparing both files once the config-version option matches
+     * | keepRedundantAsComment | Comment out options of the live config that are not in the default config while migrating. Only has effect when migrateLiveConfig is enabled
+     * | validateSchema         | Check the type and constraints (see ConfigSchema) of every live option once per reload, convert values such as "5" or "yes" where possible and use the default value otherwise
+     * | compactStorage         | Store each path segment once and share equal String values between all instances, for files with many options (eg. language files)
+     * | compactStrings         | Keep String values that only use Latin-1 characters as bytes (saves memory on Java 8), the most recently read Strings are cached
      * |------------------------| -----
      *
      * @param setting the name of the setting (see table above)
      * @return a boolean: true (enabled) or false (disabled/non existing option)
      */
     public boolean getSetting(String setting) {
-        String lowered = setting.toLowerCase();
+        Setting known = Setting.byName( setting );
 
-        if (settings.containsKey(lowered))
-            return settings.get(lowered);
-        else if (settings.get("dodebuglogging"))
+        if (known != null)
+            return get( known );
+        else if (getDoDebugLogging())
             Logger.log("Error while getting an option: " + setting + " does not exist! False has been returned.");
 
         return false;
@@ -91,19 +107,26 @@ public class Settings {
      * | useColors              | true  | Choose whether console output should be coloured
      * | autoLoadValues         | true  | Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
      * | loadDefaults           | true  | Load default values (from the default config) where live config values are missing
+     * | useBinaryCache         | false | Store a compiled binary copy of the loaded values in the data folder and use it on the next load while the config files are unchanged
+     * | useStreamingLoader     | false | Flatten the live config straight from the YAML parser instead of building a YamlConfiguration first. Files with anchors, aliases or merge keys are still loaded through YamlConfiguration
+     * | deserializeLazily      | false | Keep serialized objects (ItemStacks, Locations, ...) in their raw form until they are first read. Only has effect when useStreamingLoader is enabled
+     * | collectMetrics         | false | Count lookups, misses and reload times, available through ConfigAPI#getMetrics() and JMX
+     * | migrateLiveConfig      | false | Add missing options to the live config (with the comments of the default config) and keep a backup, reloads skip comparing both files once the config-version option matches
+     * | keepRedundantAsComment | false | Comment out options of the live config that are not in the default config while migrating. Only has effect when migrateLiveConfig is enabled
+     * | validateSchema         | false | Check the type and constraints (see ConfigSchema) of every live option once per reload, convert values such as "5" or "yes" where possible and use the default value otherwise
+     * | compactStorage         | false | Store each path segment once and share equal String values between all instances, for files with many options (eg. language files)
+     * | compactStrings         | false | Keep String values that only use Latin-1 characters as bytes (saves memory on Java 8), the most recently read Strings are cached
      * |------------------------| ------| -----
      *
      * @param setting   the option that will be edited
      * @param isEnabled the new value of the option
      */
     public void setSetting(String setting, boolean isEnabled) {
+        Setting known = Setting.byName( setting );
 
-
-        String lowered = setting.toLowerCase();
-
-        if (settings.containsKey(lowered)) {
-            settings.put(lowered, isEnabled);
-        } else if (settings.get("dodebuglogging")) {
+        if (known != null) {
+            set(known, isEnabled);
+        } else if (getDoDebugLogging()) {
             Logger.log("Error while setting an option: " + setting + " does not exist! This action will be ignored.");
         }
     }
@@ -123,6 +146,15 @@ public class Settings {
      * | useColors              | Choose whether console output should be coloured
      * | autoLoadValues         | Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
      * | loadDefaults           | Load default values (from the default config) where live config values are missing
+     * | useBinaryCache         | Store a compiled binary copy of the loaded values in the data folder and use it on the next load while the config files are unchanged
+     * | useStreamingLoader     | Flatten the live config straight from the YAML parser instead of building a YamlConfiguration first. Files with anchors, aliases or merge keys are still loaded through YamlConfiguration
+     * | deserializeLazily      | Keep serialized objects (ItemStacks, Locations, ...) in their raw form until they are first read. Only has effect when useStreamingLoader is enabled
+     * | collectMetrics         | Count lookups, misses and reload times, available through ConfigAPI#getMetrics() and JMX
+     * | migrateLiveConfig      | Add missing options to the live config (with the comments of the default config) and keep a backup, reloads skip comparing both files once the config-version option matches
+     * | keepRedundantAsComment | Comment out options of the live config that are not in the default config while migrating. Only has effect when migrateLiveConfig is enabled
+     * | validateSchema         | Check the type and constraints (see ConfigSchema) of every live option once per reload, convert values such as "5" or "yes" where possible and use the default value otherwise
+     * | compactStorage         | Store each path segment once and share equal String values between all instances, for files with many options (eg. language files)
+     * | compactStrings         | Keep String values that only use Latin-1 characters as bytes (saves memory on Java 8), the most recently read Strings are cached
      * |------------------------| -----
      *
      * @param newSettings a Map that contains the setting's name and its boolean value
@@ -147,12 +179,90 @@ public class Settings {
      * | useColors              | Choose whether console output should be coloured
      * | autoLoadValues         | Choose to load all config contents upon creating an instance. Setting this to false will be slightly more performant if other settings need to be set first.
      * | loadDefaults           | Load default values (from the default config) where live config values are missing
+     * | useBinaryCache         | Store a compiled binary copy of the loaded values in the data folder and use it on the next load while the config files are unchanged
+     * | useStreamingLoader     | Flatten the live config straight from the YAML parser instead of building a YamlConfiguration first. Files with anchors, aliases or merge keys are still loaded through YamlConfiguration
+     * | deserializeLazily      | Keep serialized objects (ItemStacks, Locations, ...) in their raw form until they are first read. Only has effect when useStreamingLoader is enabled
+     * | collectMetrics         | Count lookups, misses and reload times, available through ConfigAPI#getMetrics() and JMX
+     * | migrateLiveConfig      | Add missing options to the live config (with the comments of the default config) and keep a backup, reloads skip comparing both files once the config-version option matches
+     * | keepRedundantAsComment | Comment out options of the live config that are not in the default config while migrating. Only has effect when migrateLiveConfig is enabled
+     * | validateSchema         | Check the type and constraints (see ConfigSchema) of every live option once per reload, convert values such as "5" or "yes" where possible and use the default value otherwise
+     * | compactStorage         | Store each path segment once and share equal String values between all instances, for files with many options (eg. language files)
+     * | compactStrings         | Keep String values that only use Latin-1 characters as bytes (saves memory on Java 8), the most recently read Strings are cached
      * |------------------------| -----
      *
+     * The returned Map is a read-only view of the settings at the time of this call, it cannot be changed
+     * Use setSetting(String, boolean) or setSettings(Map) to change settings
+     *
      * @return A Map where the key is the setting's name and the value is its setting (true, false)
      */
     public Map<String, Boolean> getSettings() {
-        return settings;
+        long current = flags;
+        Map<String, Boolean> settings = new HashMap<String, Boolean>();
+
+        for (Setting setting : Setting.values())
+            settings.put(setting.getName().toLowerCase(), (current & setting.mask) != 0);
+
+        return Collections.unmodifiableMap( settings );
+    }
+
+
+    /**
+     * Get the value of a setting
+     * @param setting the setting
+     * @return true if it is enabled
+     */
+    public boolean get(Setting setting) {
+        return (flags & setting.mask) != 0;
+    }
+
+
+    /**
+     * Update a setting to a new state
+     * @param setting the setting
+     * @param isEnabled the new value of the setting
+     * @throws UnsupportedOperationException when these settings were made by a Builder
+     */
+    public synchronized void set(Setting setting, boolean isEnabled) {
+        if (immutable)
+            throw new UnsupportedOperationException("These settings are immutable, use Settings#toBuilder() to create changed settings");
+
+        flags = isEnabled ? flags | setting.mask : flags & ~setting.mask;
+    }
+
+
+    /**
+     * Get the value of every setting at once
+     * @return a bitmask in which bit n is the value of Setting n (in declaration order)
+     */
+    public long getFlags() {
+        return flags;
+    }
+
+
+    /**
+     * Check whether these settings were made by a Builder and cannot be changed
+     * @return true if immutable
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+
+    /**
+     * Create a Builder that starts from the current value of these settings
+     * @return a new Builder
+     */
+    public Builder toBuilder() {
+        return new Builder( flags );
+    }
+
+
+    /**
+     * Create a Builder that starts from the default settings
+     * @return a new Builder
+     */
+    public static Builder builder() {
+        return new Builder( Setting.defaultFlags() );
     }
 
 
@@ -164,7 +274,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setDoDebugLogging(boolean setting) {
-        setSetting("doDebugLogging", setting);
+        set(Setting.DO_DEBUG_LOGGING, setting);
     }
 
 
@@ -174,7 +284,7 @@ public class Settings {
      * @return boolean of the debugging state
      */
     public boolean getDoDebugLogging() {
-        return getSetting("doDebugLogging");
+        return get(Setting.DO_DEBUG_LOGGING);
     }
 
 
@@ -185,7 +295,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setReportMissingOptions(boolean setting) {
-        setSetting("reportMissingOptions", setting);
+        set(Setting.REPORT_MISSING_OPTIONS, setting);
     }
 
 
@@ -195,7 +305,7 @@ public class Settings {
      * @return boolean of the setting
      */
     public boolean getReportMissingOptions() {
-        return getSetting("reportMissingOptions");
+        return get(Setting.REPORT_MISSING_OPTIONS);
     }
 
 
@@ -206,7 +316,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setReportRedundantOptions(boolean setting) {
-        setSetting("reportRedundantOptions", setting);
+        set(Setting.REPORT_REDUNDANT_OPTIONS, setting);
     }
 
 
@@ -216,7 +326,7 @@ public class Settings {
      * @return boolean of this setting
      */
     public boolean getReportRedundantOptions() {
-        return getSetting("reportRedundantOptions");
+        return get(Setting.REPORT_REDUNDANT_OPTIONS);
     }
 
 
@@ -227,7 +337,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setReportNewConfig(boolean setting) {
-        setSetting("reportNewConfig", setting);
+        set(Setting.REPORT_NEW_CONFIG, setting);
     }
 
 
@@ -237,7 +347,7 @@ public class Settings {
      * @return a boolean of this setting
      */
     public boolean getReportNewConfig() {
-        return getSetting("reportNewConfig");
+        return get(Setting.REPORT_NEW_CONFIG);
     }
 
 
@@ -248,7 +358,7 @@ public class Settings {
      * @param setting a boolean. True: colored. False: default text (white)
      */
     public void setUseColors(boolean setting) {
-        setSetting("useColors", setting);
+        set(Setting.USE_COLORS, setting);
     }
 
 
@@ -259,7 +369,7 @@ public class Settings {
      * @return A boolean. True: colored. False: default text (white)
      */
     public boolean getUseColors() {
-        return getSetting("useColors");
+        return get(Setting.USE_COLORS);
     }
 
 
@@ -273,7 +383,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setAutoLoadValues(boolean setting) {
-        setSetting("autoLoadValues", setting);
+        set(Setting.AUTO_LOAD_VALUES, setting);
     }
 
 
@@ -283,7 +393,7 @@ public class Settings {
      * @return a boolean of this setting
      */
     public boolean getAutoLoadValues() {
-        return getSetting("autoLoadValues");
+        return get(Setting.AUTO_LOAD_VALUES);
     }
 
     /**
@@ -292,7 +402,7 @@ public class Settings {
      * @param setting a boolean (true: enable feature - false: disable feature)
      */
     public void setLoadDefaults(boolean setting) {
-        setSetting("loadDefaults", setting);
+        set(Setting.LOAD_DEFAULTS, setting);
     }
 
 
@@ -302,7 +412,219 @@ public class Settings {
      * @return a boolean of this setting
      */
     public boolean getLoadDefaults() {
-        return getSetting("loadDefaults");
+        return get(Setting.LOAD_DEFAULTS);
+    }
+
+
+    /**
+     * Choose whether a compiled binary copy of the loaded values should be kept in the plugin's data folder
+     * On the next load, this copy is used instead of parsing YAML as long as the config files and settings did not change
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setUseBinaryCache(boolean setting) {
+        set(Setting.USE_BINARY_CACHE, setting);
+    }
+
+
+    /**
+     * Get whether a compiled binary copy of the loaded values is used to speed up loading
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getUseBinaryCache() {
+        return get(Setting.USE_BINARY_CACHE);
+    }
+
+
+    /**
+     * Enable or disable the streaming loader, which flattens the live config straight from the YAML parser
+     * This avoids building a YamlConfiguration tree first, which saves time and memory for large files
+     * Files that use anchors, aliases, merge keys or duplicate keys are still loaded through YamlConfiguration
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setUseStreamingLoader(boolean setting) {
+        set(Setting.USE_STREAMING_LOADER, setting);
+    }
+
+
+    /**
+     * Check whether the live config is flattened straight from the YAML parser
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getUseStreamingLoader() {
+        return get(Setting.USE_STREAMING_LOADER);
+    }
+
+
+    /**
+     * Enable or disable lazy deserialization of serialized objects such as ItemStacks, Locations and Vectors
+     * When enabled, these options are kept in their raw form while loading and deserialized when they are first read
+     * The deserialized object is cached until the next reload, ItemStacks, Locations and Vectors are handed out as a clone
+     * This only has effect when the streaming loader is enabled, serialized objects within Lists are still deserialized while loading
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setDeserializeLazily(boolean setting) {
+        set(Setting.DESERIALIZE_LAZILY, setting);
+    }
+
+
+    /**
+     * Check whether serialized objects are deserialized when they are first read
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getDeserializeLazily() {
+        return get(Setting.DESERIALIZE_LAZILY);
+    }
+
+
+    /**
+     * Enable or disable the collection of metrics
+     * Lookups per type, misses per path, lookups per path, reload times and bytes read are counted
+     * The counters are available through ConfigAPI#getMetrics() and are registered as an MXBean for JMX
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setCollectMetrics(boolean setting) {
+        set(Setting.COLLECT_METRICS, setting);
+    }
+
+
+    /**
+     * Check whether metrics are collected
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getCollectMetrics() {
+        return get(Setting.COLLECT_METRICS);
+    }
+
+
+    /**
+     * Enable or disable the migration of live configs
+     * Missing options are written to the live config, with their comments, at the position they have in the default config
+     * A backup of the previous file is kept in the .backup folder of the data folder, comments and formatting of the live config are kept
+     * When the default config has a config-version option, it is updated as well and reloads skip comparing both files while the versions match
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setMigrateLiveConfig(boolean setting) {
+        set(Setting.MIGRATE_LIVE_CONFIG, setting);
+    }
+
+
+    /**
+     * Check whether live configs are migrated automatically
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getMigrateLiveConfig() {
+        return get(Setting.MIGRATE_LIVE_CONFIG);
+    }
+
+
+    /**
+     * Enable or disable commenting out redundant options while migrating the live config
+     * The redundant options stay in the file as comments, so their values are not lost
+     * This only has effect when migrateLiveConfig is enabled
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setKeepRedundantAsComment(boolean setting) {
+        set(Setting.KEEP_REDUNDANT_AS_COMMENT, setting);
+    }
+
+
+    /**
+     * Check whether redundant options are commented out while migrating
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getKeepRedundantAsComment() {
+        return get(Setting.KEEP_REDUNDANT_AS_COMMENT);
+    }
+
+
+    /**
+     * Enable or disable validating the live config against the default config
+     * The type of each default value is expected in the live config, values such as "5" are converted when a number is expected
+     * Any number is valid where the default value is a number (or a String or List), unless the sidecar declares a type
+     * Constraints (min, max, allowed values, type) can be added in a sidecar resource, eg. config.schema.yml for config.yml
+     * Values that cannot be converted or break a constraint are replaced by their default value and reported to the console
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setValidateSchema(boolean setting) {
+        set(Setting.VALIDATE_SCHEMA, setting);
+    }
+
+
+    /**
+     * Check whether the live config is validated against the default config
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getValidateSchema() {
+        return get(Setting.VALIDATE_SCHEMA);
+    }
+
+
+    /**
+     * Enable or disable compact storage of the loaded values
+     * Paths are stored as a tree of segments instead of one String per full path, equal String values are shared between all instances
+     * Reading values is just as fast, reading sections and their keys creates the full paths when needed
+     * The memory that is saved can be checked through ConfigAPI#getStorageStatistics()
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setCompactStorage(boolean setting) {
+        set(Setting.COMPACT_STORAGE, setting);
+    }
+
+
+    /**
+     * Check whether loaded values are stored compactly
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getCompactStorage() {
+        return get(Setting.COMPACT_STORAGE);
+    }
+
+
+    /**
+     * Enable or disable storing String values as bytes
+     * Values that only use Latin-1 characters are kept as one byte per character, a String is created when such a value is read
+     * The most recently read Strings are cached, values that are read very often are better kept as Strings
+     * This saves memory on Java 8, newer versions already store such Strings with one byte per character
+     * Default: false
+     *
+     * @param setting a boolean (true: enable feature - false: disable feature)
+     */
+    public void setCompactStrings(boolean setting) {
+        set(Setting.COMPACT_STRINGS, setting);
+    }
+
+
+    /**
+     * Check whether String values are stored as bytes
+     *
+     * @return a boolean of this setting
+     */
+    public boolean getCompactStrings() {
+        return get(Setting.COMPACT_STRINGS);
     }
 
 
@@ -316,15 +638,15 @@ public class Settings {
         Logger.log("| Setting name           | Value |");
         Logger.log("|------------------------|-------|");
 
-        for (Map.Entry<String, Boolean> setting : settings.entrySet()) {
-            String name = setting.getKey();
+        for (Setting setting : Setting.values()) {
+            String name = setting.getName().toLowerCase();
             String logString = "| " + name;
 
             for (int i = name.length(); i < 23; i++) {
                 logString += " ";
             }
 
-            boolean value = setting.getValue();
+            boolean value = get( setting );
             logString += "| " + value;
             logString += value ? "  |" : " |";
 
@@ -333,4 +655,55 @@ public class Settings {
 
         Logger.log("|------------------------|-------|");
     }
+
+
+    // ------- //
+    // Builder //
+    // ------- //
+
+
+    public static final class Builder {
+
+        // Collects settings for an immutable Settings instance
+
+        private long flags;         // The value of every setting, one bit per Setting
+
+
+        private Builder(long flags) {
+            this.flags = flags;
+        }
+
+
+        /**
+         * Change a setting
+         * @param setting the setting
+         * @param isEnabled the new value of the setting
+         * @return this builder
+         */
+        public Builder set(Setting setting, boolean isEnabled) {
+            flags = isEnabled ? flags | setting.mask : flags & ~setting.mask;
+            return this;
+        }
+
+
+        /**
+         * Change a setting by its name, unknown names are ignored
+         * @param setting the name of the setting (see the tables of Settings)
+         * @param isEnabled the new value of the setting
+         * @return this builder
+         */
+        public Builder set(String setting, boolean isEnabled) {
+            Setting known = Setting.byName( setting );
+            return known != null ? set(known, isEnabled) : this;
+        }
+
+
+        /**
+         * Create the immutable settings
+         * @return a Settings instance that cannot be changed
+         */
+        public Settings build() {
+            return new Settings(flags, true);
+        }
+    }
 }
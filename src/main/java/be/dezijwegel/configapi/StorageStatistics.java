@@ -0,0 +1,121 @@
+package be.dezijwegel.configapi;
+
+public final class StorageStatistics {
+
+    // An estimate of the memory the loaded values of one instance retain, compared to storing every path and String on its own
+    // Sizes assume a 64 bit JVM with compressed references. Objects that are shared with other instances are counted in each instance,
+    // so the real saving over all instances is higher than the sum of what each instance reports
+    // Only paths and String values are measured: numbers and booleans are stored unboxed either way
+
+    private static final boolean COMPACT_STRINGS = ! System.getProperty("java.specification.version", "").startsWith("1.");     // Java 9+ stores Latin-1 Strings with one byte per character
+
+    private final int entries;              // The amount of loaded values
+    private final long pathBytes;           // The estimated size of the stored paths
+    private final long plainPathBytes;      // The estimated size of the paths when each is a separate String
+    private final long valueBytes;          // The estimated size of the stored String values
+    private final long plainValueBytes;     // The estimated size of the String values when each is a separate String
+
+
+    StorageStatistics(int entries, long pathBytes, long plainPathBytes, long valueBytes, long plainValueBytes)
+    {
+        this.entries = entries;
+        this.pathBytes = pathBytes;
+        this.plainPathBytes = plainPathBytes;
+        this.valueBytes = valueBytes;
+        this.plainValueBytes = plainValueBytes;
+    }
+
+
+    /**
+     * Estimate the size of a String, including its character array
+     * @param value the String
+     * @return the estimated amount of bytes
+     */
+    static long stringBytes(String value)
+    {
+        boolean latin1 = COMPACT_STRINGS;
+        for (int i = 0; latin1 && i < value.length(); i++)
+            latin1 = value.charAt( i ) <= 0xFF;
+
+        return 24 + arrayBytes(latin1 ? value.length() : 2L * value.length());
+    }
+
+
+    /**
+     * Estimate the size of an array
+     * @param contentBytes the size of the elements
+     * @return the estimated amount of bytes, with header and padding
+     */
+    static long arrayBytes(long contentBytes)
+    {
+        return (16 + contentBytes + 7) & ~7L;
+    }
+
+
+    /**
+     * Get the amount of loaded values that were measured
+     * @return the amount of entries
+     */
+    public int getEntries()
+    {
+        return entries;
+    }
+
+
+    /**
+     * Get the estimated size of the stored paths
+     * @return the size in bytes
+     */
+    public long getPathBytes()
+    {
+        return pathBytes;
+    }
+
+
+    /**
+     * Get the estimated size of the paths if each of them was stored as a separate String
+     * @return the size in bytes
+     */
+    public long getPlainPathBytes()
+    {
+        return plainPathBytes;
+    }
+
+
+    /**
+     * Get the estimated size of the stored String values
+     * @return the size in bytes
+     */
+    public long getValueBytes()
+    {
+        return valueBytes;
+    }
+
+
+    /**
+     * Get the estimated size of the String values if each of them was stored as a separate String
+     * @return the size in bytes
+     */
+    public long getPlainValueBytes()
+    {
+        return plainValueBytes;
+    }
+
+
+    /**
+     * Get the estimated amount of memory that is saved by compact storage (see Settings#setCompactStorage(boolean))
+     * @return the size in bytes, zero when compact storage is not used
+     */
+    public long getBytesSaved()
+    {
+        return (plainPathBytes + plainValueBytes) - (pathBytes + valueBytes);
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return "StorageStatistics{entries=" + entries + ", paths=" + pathBytes + "B (plain: " + plainPathBytes + "B), values=" + valueBytes
+                + "B (plain: " + plainValueBytes + "B), saved=" + getBytesSaved() + "B}";
+    }
+}
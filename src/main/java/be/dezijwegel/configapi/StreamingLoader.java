@@ -0,0 +1,391 @@
+package be.dezijwegel.configapi;
+
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.yaml.snakeyaml.constructor.Construct;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+final class StreamingLoader {
+
+    // Flattens a YAML document straight from the events of SnakeYAML's parser, without building a YamlConfiguration first
+    // Every option is put into the result with its full path as soon as it is read, so no tree of MemorySections is created and no path is resolved twice
+    // The result is a FlatConfig like the one built from a YamlConfiguration, since comparing, migrating and validating work on that form before the values are stored
+    // Values are constructed exactly like YamlConfiguration would: scalars through SnakeYAML's own constructors, "==" maps through ConfigurationSerialization
+    // In lazy mode, serialized objects that are options themselves are kept as a LazyObject. Serialized objects within Lists are always deserialized right away
+    //
+    // Documents that use less common YAML features (anchors and aliases, merge keys, non-scalar keys, special collection tags, duplicate keys)
+    // are not handled here: load() returns null and the caller should use YamlConfiguration instead
+
+    private static final Resolver resolver = new Resolver();        // Detects the type of plain scalars, never modified after construction
+
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+    private static final Object MERGE = new Object();                // Returned for the "<<" merge key, which is not supported
+
+    private final Parser parser;                                        // The event source
+    private final boolean lazy;                                         // Whether serialized objects are kept in their raw form until they are read
+    private final ScalarConstructor constructor = new ScalarConstructor();  // Not thread safe, one per load
+    private final Map<String, Object> leaves = new LinkedHashMap<String, Object>();
+    private final Set<String> sections = new HashSet<String>();
+
+
+    private StreamingLoader(byte[] contents, boolean lazy)
+    {
+        this.lazy = lazy;
+        this.parser = new ParserImpl( new StreamReader( new InputStreamReader(new ByteArrayInputStream( contents ), StandardCharsets.UTF_8) ));
+    }
+
+
+    /**
+     * Flatten the contents of a config file
+     * @param contents the contents of the file, may be null
+     * @param lazy true to keep serialized objects (ItemStacks, Locations, ...) as a LazyObject, which deserializes them when they are first read
+     * @return the flattened file or null when it cannot be loaded this way (unsupported features or invalid YAML)
+     */
+    static FlatConfig load(byte[] contents, boolean lazy)
+    {
+        if (contents == null)
+            return FlatConfig.EMPTY;
+
+        try {
+            return new StreamingLoader(contents, lazy).loadDocument();
+        } catch (RuntimeException ex) {
+            // Either an unsupported feature or invalid YAML: YamlConfiguration will handle (and report) it
+            return null;
+        }
+    }
+
+
+    private FlatConfig loadDocument()
+    {
+        expect( Event.ID.StreamStart );
+
+        if (parser.checkEvent( Event.ID.StreamEnd ))
+            return FlatConfig.EMPTY;
+
+        expect( Event.ID.DocumentStart );
+
+        Event root = parser.getEvent();
+        if (root.is( Event.ID.MappingStart ))
+        {
+            checkNode( root, Tag.MAP );
+            readSection( "" );
+        }
+        else if ( ! isNull( root ))
+        {
+            // YamlConfiguration only accepts a map at the top level
+            throw UNSUPPORTED;
+        }
+
+        expect( Event.ID.DocumentEnd );
+        expect( Event.ID.StreamEnd );
+
+        return new FlatConfig(leaves, sections);
+    }
+
+
+    // -------- //
+    // Sections //
+    // -------- //
+
+
+    /**
+     * Read the entries of a mapping that is loaded as a section, until its end
+     * @param prefix the full path of the section followed by a dot, or an empty String for the root
+     */
+    private void readSection(String prefix)
+    {
+        while ( ! parser.checkEvent( Event.ID.MappingEnd ))
+        {
+            String key = readKey();
+
+            // A "==" key after other keys makes the whole mapping a serialized object, which would already have been flattened as a section
+
+            if (key.equals( ConfigurationSerialization.SERIALIZED_TYPE_KEY ))
+                throw UNSUPPORTED;
+
+            String path = prefix + key;
+
+            if (leaves.containsKey( path ) || sections.contains( path ))
+                throw UNSUPPORTED;
+
+            Event value = parser.getEvent();
+
+            if (value.is( Event.ID.MappingStart ))
+            {
+                checkNode( value, Tag.MAP );
+
+                if (isSerializedObject() && lazy)
+                {
+                    leaves.put(path, new LazyObject( readRawMapping() ));
+                }
+                else if (isSerializedObject())
+                {
+                    Object object = readMapping( false );
+                    if (object != null)
+                        leaves.put(path, object);
+                }
+                else
+                {
+                    sections.add( path );
+                    readSection( path + "." );
+                }
+            }
+            else
+            {
+                // Like YamlConfiguration: options without a value are not stored
+
+                Object leaf = readValue(value, false);
+                if (leaf != null)
+                    leaves.put(path, leaf);
+            }
+        }
+
+        parser.getEvent();
+    }
+
+
+    /**
+     * Check whether the mapping that was just started is a serialized object
+     * Only the first key is checked, which is where Bukkit puts the type
+     * A "==" key further down a mapping is detected while reading it as a section, that file is then loaded through YamlConfiguration
+     * @return true if the first key is "=="
+     */
+    private boolean isSerializedObject()
+    {
+        Event next = parser.peekEvent();
+
+        return next instanceof ScalarEvent && ConfigurationSerialization.SERIALIZED_TYPE_KEY.equals( ((ScalarEvent) next).getValue() );
+    }
+
+
+    private String readKey()
+    {
+        Event key = parser.getEvent();
+
+        if ( ! key.is( Event.ID.Scalar ))
+            throw UNSUPPORTED;
+
+        Object value = constructScalar( (ScalarEvent) key );
+        if (value == MERGE)
+            throw UNSUPPORTED;
+
+        return String.valueOf( value );
+    }
+
+
+    // ------ //
+    // Values //
+    // ------ //
+
+
+    /**
+     * Read a complete value, mappings within values are kept as Maps
+     * @param start the first event of the value
+     * @param raw true to keep serialized objects as Maps instead of deserializing them
+     * @return the constructed value
+     */
+    private Object readValue(Event start, boolean raw)
+    {
+        if (start.is( Event.ID.Scalar ))
+        {
+            Object value = constructScalar( (ScalarEvent) start );
+            if (value == MERGE)
+                throw UNSUPPORTED;
+            return value;
+        }
+
+        if (start.is( Event.ID.SequenceStart ))
+        {
+            checkNode( start, Tag.SEQ );
+
+            List<Object> list = new ArrayList<Object>();
+            while ( ! parser.checkEvent( Event.ID.SequenceEnd ))
+                list.add( readValue(parser.getEvent(), raw) );
+
+            parser.getEvent();
+            return list;
+        }
+
+        if (start.is( Event.ID.MappingStart ))
+        {
+            checkNode( start, Tag.MAP );
+            return readMapping( raw );
+        }
+
+        // Aliases and anything unexpected
+        throw UNSUPPORTED;
+    }
+
+
+    /**
+     * Read the entries of a mapping as a Map, until its end
+     * Maps with a "==" key are deserialized like YamlConfiguration does, unless raw is true
+     * @param raw true to keep serialized objects as Maps
+     * @return the Map or the deserialized object
+     */
+    private Object readMapping(boolean raw)
+    {
+        Map<Object, Object> map = new LinkedHashMap<Object, Object>();
+
+        while ( ! parser.checkEvent( Event.ID.MappingEnd ))
+        {
+            Event keyEvent = parser.getEvent();
+            if ( ! keyEvent.is( Event.ID.Scalar ))
+                throw UNSUPPORTED;
+
+            Object key = constructScalar( (ScalarEvent) keyEvent );
+            if (key == MERGE || map.containsKey( key ))
+                throw UNSUPPORTED;
+
+            map.put(key, readValue(parser.getEvent(), raw));
+        }
+
+        parser.getEvent();
+
+        if (raw || ! map.containsKey( ConfigurationSerialization.SERIALIZED_TYPE_KEY ))
+            return map;
+
+        return ConfigurationSerialization.deserializeObject( typed( map ) );
+    }
+
+
+    /**
+     * Read a serialized object in its raw form, nested serialized objects are not deserialized either
+     * @return the serialized object as a Map with String keys
+     */
+    private Map<String, Object> readRawMapping()
+    {
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> map = (Map<Object, Object>) readMapping( true );
+        return typed( map );
+    }
+
+
+    private static Map<String, Object> typed(Map<Object, Object> map)
+    {
+        Map<String, Object> typed = new LinkedHashMap<String, Object>( map.size() );
+        for (Map.Entry<Object, Object> entry : map.entrySet())
+            typed.put(entry.getKey().toString(), entry.getValue());
+        return typed;
+    }
+
+
+    // ------- //
+    // Scalars //
+    // ------- //
+
+
+    /**
+     * Construct the value of a scalar, the tag is resolved like SnakeYAML's Composer does
+     * @param event the scalar event
+     * @return the constructed value or MERGE for a merge key
+     */
+    private Object constructScalar(ScalarEvent event)
+    {
+        checkAnchor( event );
+
+        String tagName = event.getTag();
+        Tag tag = (tagName == null || tagName.equals("!"))
+                ? resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar())
+                : new Tag( tagName );
+
+        if (tag.equals( Tag.MERGE ))
+            return MERGE;
+
+        // Most values are Strings, skip the constructor lookup for them
+
+        if (tag.equals( Tag.STR ))
+            return event.getValue();
+
+        return constructor.construct(tag, event);
+    }
+
+
+    private static boolean isNull(Event event)
+    {
+        return event instanceof ScalarEvent && resolver.resolve(NodeId.scalar, ((ScalarEvent) event).getValue(), ((ScalarEvent) event).getImplicit().canOmitTagInPlainScalar()).equals( Tag.NULL );
+    }
+
+
+    // ------- //
+    // Helpers //
+    // ------- //
+
+
+    private void expect(Event.ID id)
+    {
+        if ( ! parser.getEvent().is( id ))
+            throw UNSUPPORTED;
+    }
+
+
+    /**
+     * Make sure a collection has no anchor and no tag other than the default one
+     * @param event the start of the collection
+     * @param defaultTag the tag that may be given explicitly
+     */
+    private static void checkNode(Event event, Tag defaultTag)
+    {
+        checkAnchor( event );
+
+        String tag = ((CollectionStartEvent) event).getTag();
+        if (tag != null && ! tag.equals("!") && ! tag.equals( defaultTag.getValue() ))
+            throw UNSUPPORTED;
+    }
+
+
+    private static void checkAnchor(Event event)
+    {
+        if (event instanceof AliasEvent || (event instanceof NodeEvent && ((NodeEvent) event).getAnchor() != null))
+            throw UNSUPPORTED;
+    }
+
+
+    private static final class ScalarConstructor extends SafeConstructor {
+
+        // Gives access to SnakeYAML's scalar constructors, without building a node tree
+
+        Object construct(Tag tag, ScalarEvent event)
+        {
+            Construct construct = yamlConstructors.get( tag );
+            if (construct == null)
+                throw UNSUPPORTED;
+
+            return construct.construct( new ScalarNode(tag, event.getValue(), event.getStartMark(), event.getEndMark(), event.getScalarStyle()) );
+        }
+    }
+
+
+    private static final class Unsupported extends RuntimeException {
+
+        // Thrown when a document uses a feature this loader does not handle, carries no stack trace since it is never printed
+
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported()
+        {
+            super(null, null, false, false);
+        }
+    }
+}
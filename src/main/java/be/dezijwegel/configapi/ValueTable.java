@@ -0,0 +1,943 @@
+package be.dezijwegel.configapi;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+final class ValueTable {
+
+    // An immutable table that maps full paths to values
+    // Numbers and booleans are stored unboxed in a long[], every other value is kept in an Object[]
+    // Paths are located through an open addressing hash table which stores (entry index + 1), zero marks an empty bucket
+    // A second index lists the entries sorted by path: all paths within a section are next to each other, so they are found with a binary search
+    // Each entry has a precomputed bitmask of the types it can be read as without loss (views), eg. 10 can be read as an int, long, double and String
+    // The String view of a primitive entry is created on first use and kept in objects[], which is otherwise unused for primitives
+    //
+    // Compact storage (optional) keeps the paths in a PathTrie instead of one String per full path, and interns every String value
+    // With compact Strings, values that only use Latin-1 characters are kept as one byte per character and turned into a String when read.
+    // The most recently read Strings are cached, a cached String is replaced when another entry with the same slot is read
+
+    static final byte OBJECT    = 0;        // The value is stored in objects[]
+    static final byte INT       = 1;        // The value is stored in primitives[] as a long
+    static final byte LONG      = 2;        // The value is stored in primitives[]
+    static final byte DOUBLE    = 3;        // The value is stored in primitives[] as raw long bits
+    static final byte BOOLEAN   = 4;        // The value is stored in primitives[] as 0 (false) or 1 (true)
+    static final byte LATIN1    = 5;        // The value is a String, stored in objects[] as Latin1 bytes
+
+    static final int COMPACT_STORAGE    = 1;        // Store paths in a PathTrie and intern String values
+    static final int COMPACT_STRINGS    = 1 << 1;   // Store String values with only Latin-1 characters as bytes
+
+    private static final int RECENT_STRINGS = 64;   // The amount of cache slots for Strings that were created from bytes
+
+    static final byte AS_INT        = 1;        // The value is a whole number within the range of an int
+    static final byte AS_LONG       = 1 << 1;   // The value is a whole number within the range of a long
+    static final byte AS_DOUBLE     = 1 << 2;   // The value is a number that a double holds exactly
+    static final byte AS_BOOLEAN    = 1 << 3;   // The value is a boolean
+    static final byte AS_STRING     = 1 << 4;   // The value is a String, a number or a boolean
+
+    static final ValueTable EMPTY = new Builder(0).build();
+
+    private final String[] paths;           // The path of each entry, null when the paths are stored in the trie
+    private final PathTrie trie;            // The path of each entry when compact storage is used, null otherwise
+    private final byte[] kinds;             // The kind of each entry (see constants above)
+    private final long[] primitives;        // The unboxed value of each primitive entry
+    private final Object[] objects;         // The value of each non-primitive entry, the String view of primitive entries once requested
+    private final byte[] views;             // The types each entry can be read as (see AS_ constants above)
+    private final int[] table;              // Open addressing hash table, stores entry index + 1
+    private final int[] sorted;             // Entry indices, sorted by path
+    private final int size;                 // The amount of entries
+    private final int storage;              // The storage flags this table was built with (see COMPACT_ constants above)
+    private final RecentString[] recentStrings;     // Strings that were recently created from Latin1 bytes, null without compact Strings
+
+
+    private ValueTable(String[] paths, byte[] kinds, long[] primitives, Object[] objects, int size, int storage)
+    {
+        this.trie = (storage & COMPACT_STORAGE) != 0 ? PathTrie.of(paths, size) : null;
+        this.paths = trie == null ? paths : null;
+        this.kinds = kinds;
+        this.primitives = primitives;
+        this.objects = objects;
+        this.size = size;
+        this.storage = storage;
+        this.recentStrings = (storage & COMPACT_STRINGS) != 0 ? new RecentString[ RECENT_STRINGS ] : null;
+        this.views = new byte[ size ];
+        this.table = new int[ tableCapacity( size ) ];
+
+        for (int i = 0; i < size; i++)
+            views[ i ] = viewsOf(kinds[ i ], primitives[ i ], objects[ i ]);
+
+        for (int i = 0; i < size; i++)
+            insert(table, paths[ i ].hashCode(), i);
+
+        this.sorted = sortByPath(paths, size);
+    }
+
+
+    // ------ //
+    // Lookup //
+    // ------ //
+
+
+    /**
+     * Find the entry index of the given path
+     * @param path the full path
+     * @return the index of the entry or -1 when the path does not exist
+     */
+    int indexOf(String path)
+    {
+        int hash = path.hashCode();
+        int mask = table.length - 1;
+        int bucket = spread( hash ) & mask;
+
+        int entry;
+
+        if (trie != null)
+        {
+            while ((entry = table[ bucket ]) != 0)
+            {
+                if (trie.matches(entry - 1, path, hash))
+                    return entry - 1;
+                bucket = (bucket + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        while ((entry = table[ bucket ]) != 0)
+        {
+            String candidate = paths[ entry - 1 ];
+            if (candidate == path || candidate.equals( path ))
+                return entry - 1;
+            bucket = (bucket + 1) & mask;
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Check whether the given path exists
+     * @param path the full path
+     * @return true if the path exists
+     */
+    boolean contains(String path)
+    {
+        return indexOf( path ) >= 0;
+    }
+
+
+    /**
+     * Get the value of a path, primitive values will be boxed
+     * @param path the full path
+     * @return the value or null when the path does not exist
+     */
+    Object get(String path)
+    {
+        int index = indexOf( path );
+        return index < 0 ? null : objectAt( index );
+    }
+
+
+    // -------- //
+    // Sections //
+    // -------- //
+
+
+    /**
+     * Check whether a section contains at least one value
+     * @param section the full path of the section, an empty String for the root
+     * @return true if a path within this section exists
+     */
+    boolean hasEntriesWithin(String section)
+    {
+        if (section.isEmpty())
+            return size > 0;
+
+        int from = lowerBound(section + ".");
+        return from < size && pathAt( sorted[ from ] ).startsWith( section + "." );
+    }
+
+
+    /**
+     * Get all entries within a section, at any depth
+     * Takes time proportional to the amount of entries that are found
+     * @param section the full path of the section, an empty String for the root
+     * @return the entry indices in file order
+     */
+    int[] entriesWithin(String section)
+    {
+        if (section.isEmpty())
+        {
+            int[] all = new int[ size ];
+            for (int i = 0; i < size; i++)
+                all[ i ] = i;
+            return all;
+        }
+
+        // Every path within the section lies between "section." and "section/" since '/' directly follows '.'
+
+        int from = lowerBound(section + ".");
+        int to = lowerBound(section + "/");
+
+        int[] entries = Arrays.copyOfRange(sorted, from, to);
+        Arrays.sort( entries );
+        return entries;
+    }
+
+
+    /**
+     * Get the names of the direct children of a section: its values and subsections
+     * Takes time proportional to the amount of entries within the section
+     * @param section the full path of the section, an empty String for the root
+     * @return the names (not full paths) in file order
+     */
+    List<String> childrenOf(String section)
+    {
+        String prefix = section.isEmpty() ? "" : section + ".";
+        int from = section.isEmpty() ? 0 : lowerBound( prefix );
+        int to = section.isEmpty() ? size : lowerBound(section + "/");
+
+        // All entries of one child are next to each other in the sorted index
+        // The file order of a child is the position of its first entry in the file
+
+        List<String> names = new ArrayList<String>();
+        List<Integer> firstEntries = new ArrayList<Integer>();
+
+        String current = null;
+        int first = 0;
+
+        for (int position = from; position < to; position++)
+        {
+            int entry = sorted[ position ];
+            String path = pathAt( entry );
+            int dot = path.indexOf('.', prefix.length());
+            int end = dot < 0 ? path.length() : dot;
+
+            if (current != null && current.length() == end - prefix.length() && path.startsWith(current, prefix.length()))
+            {
+                first = Math.min(first, entry);
+                continue;
+            }
+
+            if (current != null)
+            {
+                names.add( current );
+                firstEntries.add( first );
+            }
+
+            current = path.substring(prefix.length(), end);
+            first = entry;
+        }
+
+        if (current != null)
+        {
+            names.add( current );
+            firstEntries.add( first );
+        }
+
+        Integer[] order = new Integer[ names.size() ];
+        for (int i = 0; i < order.length; i++)
+            order[ i ] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(firstEntries.get( a ), firstEntries.get( b )));
+
+        List<String> children = new ArrayList<String>( order.length );
+        for (Integer index : order)
+            children.add( names.get( index ));
+        return children;
+    }
+
+
+    /**
+     * Find the first position in the sorted index of which the path is not smaller than the given key
+     * @param key the key to search
+     * @return a position between 0 and size (inclusive)
+     */
+    private int lowerBound(String key)
+    {
+        int low = 0;
+        int high = size;
+
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (pathAt( sorted[ middle ] ).compareTo( key ) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+
+    private static int[] sortByPath(String[] paths, int size)
+    {
+        Integer[] order = new Integer[ size ];
+        for (int i = 0; i < size; i++)
+            order[ i ] = i;
+
+        Arrays.sort(order, (a, b) -> paths[ a ].compareTo( paths[ b ] ));
+
+        int[] sorted = new int[ size ];
+        for (int i = 0; i < size; i++)
+            sorted[ i ] = order[ i ];
+        return sorted;
+    }
+
+
+    // ------------ //
+    // Entry access //
+    // ------------ //
+
+
+    int size()
+    {
+        return size;
+    }
+
+
+    /**
+     * Get the full path of an entry
+     * With compact storage a new String is created on every call
+     * @param index the entry index
+     * @return the full path
+     */
+    String pathAt(int index)
+    {
+        return paths != null ? paths[ index ] : trie.pathAt( index );
+    }
+
+
+    byte kindAt(int index)
+    {
+        return kinds[ index ];
+    }
+
+
+    /**
+     * Check whether an entry can be read as a type without loss
+     * @param index the entry index or a negative number if the entry does not exist
+     * @param view one of the AS_ constants
+     * @return true if the entry exists and can be read through the matching accessor, eg. intAt(int) for AS_INT
+     */
+    boolean hasView(int index, byte view)
+    {
+        return index >= 0 && (views[ index ] & view) != 0;
+    }
+
+
+    /**
+     * Read an entry as an int, only valid when it has the AS_INT view
+     */
+    int intAt(int index)
+    {
+        return kinds[ index ] == DOUBLE ? (int) Double.longBitsToDouble( primitives[ index ] ) : (int) primitives[ index ];
+    }
+
+
+    /**
+     * Read an entry as a long, only valid when it has the AS_LONG view
+     */
+    long longAt(int index)
+    {
+        return kinds[ index ] == DOUBLE ? (long) Double.longBitsToDouble( primitives[ index ] ) : primitives[ index ];
+    }
+
+
+    /**
+     * Read an entry as a double, only valid when it has the AS_DOUBLE view
+     */
+    double doubleAt(int index)
+    {
+        return kinds[ index ] == DOUBLE ? Double.longBitsToDouble( primitives[ index ] ) : (double) primitives[ index ];
+    }
+
+
+    boolean booleanAt(int index)
+    {
+        return primitives[ index ] != 0;
+    }
+
+
+    /**
+     * Read an entry as a String, only valid when it has the AS_STRING view
+     * Numbers and booleans are converted on first use, after that the same String is returned
+     */
+    String stringAt(int index)
+    {
+        Object value = objects[ index ];
+
+        if (kinds[ index ] == LATIN1)
+            return latin1At(index, (Latin1) value);
+
+        if (value == null)
+        {
+            // Racing threads create equal Strings, which are safe to publish without synchronization
+
+            value = String.valueOf( objectAt( index ) );
+            objects[ index ] = value;
+        }
+        return (String) value;
+    }
+
+
+    /**
+     * Create the String of a Latin1 entry, or take it from the cache of recently created Strings
+     */
+    private String latin1At(int index, Latin1 value)
+    {
+        int slot = index & (RECENT_STRINGS - 1);
+        RecentString recent = recentStrings[ slot ];
+
+        if (recent != null && recent.index == index)
+            return recent.value;
+
+        // A RecentString is immutable, so racing threads at worst replace each other's cache entry
+
+        String created = new String(value.bytes, StandardCharsets.ISO_8859_1);
+        recentStrings[ slot ] = new RecentString(index, created);
+        return created;
+    }
+
+
+    /**
+     * Read an entry as the given type, using the views of the entry for numbers, booleans and Strings
+     * @param index the entry index or a negative number if the entry does not exist
+     * @param type the requested (boxed) type
+     * @return the value, or null when it does not exist or cannot be read as this type
+     */
+    Object valueAs(int index, Class<?> type)
+    {
+        if (index < 0)
+            return null;
+
+        if (type == Integer.class)
+            return hasView(index, AS_INT) ? (Object) intAt( index ) : null;
+        if (type == Long.class)
+            return hasView(index, AS_LONG) ? (Object) longAt( index ) : null;
+        if (type == Double.class)
+            return hasView(index, AS_DOUBLE) ? (Object) doubleAt( index ) : null;
+        if (type == Boolean.class)
+            return hasView(index, AS_BOOLEAN) ? (Object) booleanAt( index ) : null;
+        if (type == String.class)
+            return hasView(index, AS_STRING) ? stringAt( index ) : null;
+
+        Object value = objectAt( index );
+        return type.isInstance( value ) ? value : null;
+    }
+
+
+    /**
+     * Find every type a value can be read as without loss
+     * @param kind the kind of the entry
+     * @param bits the stored bits of a primitive entry
+     * @param object the value of a non-primitive entry
+     * @return the views as a bitmask of AS_ constants
+     */
+    private static byte viewsOf(byte kind, long bits, Object object)
+    {
+        switch (kind)
+        {
+            case INT:
+                return AS_INT | AS_LONG | AS_DOUBLE | AS_STRING;
+            case LONG:
+            {
+                byte views = AS_LONG | AS_STRING;
+                if (bits == (int) bits)
+                    views |= AS_INT;
+                if (Math.abs( bits ) <= 1L << 53)
+                    views |= AS_DOUBLE;
+                return views;
+            }
+            case DOUBLE:
+            {
+                double value = Double.longBitsToDouble( bits );
+                byte views = AS_DOUBLE | AS_STRING;
+                if (value == Math.rint( value ) && Math.abs( value ) < 0x1p63)
+                {
+                    views |= AS_LONG;
+                    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                        views |= AS_INT;
+                }
+                return views;
+            }
+            case BOOLEAN:
+                return AS_BOOLEAN | AS_STRING;
+            case LATIN1:
+                return AS_STRING;
+            default:
+                return object instanceof String ? AS_STRING : 0;
+        }
+    }
+
+
+    /**
+     * Get the raw stored bits of a primitive entry, doubles are returned as their raw long bits
+     * @param index the entry index
+     * @return the stored bits
+     */
+    long bitsAt(int index)
+    {
+        return primitives[ index ];
+    }
+
+
+    /**
+     * Get the value of an entry, primitive values will be boxed
+     * @param index the entry index
+     * @return the value of this entry
+     */
+    Object objectAt(int index)
+    {
+        switch (kinds[ index ])
+        {
+            case INT:       return intAt( index );
+            case LONG:      return longAt( index );
+            case DOUBLE:    return doubleAt( index );
+            case BOOLEAN:   return booleanAt( index );
+            case LATIN1:    return stringAt( index );
+            default:        return objects[ index ] instanceof LazyObject ? ((LazyObject) objects[ index ]).get() : LazyObject.copyOf( objects[ index ] );
+        }
+    }
+
+
+    /**
+     * Get the value of an entry without deserializing it, used to store the values in their loaded form
+     * @param index the entry index
+     * @return the value of this entry, serialized objects that were not read yet are returned as a LazyObject
+     */
+    Object rawObjectAt(int index)
+    {
+        return kinds[ index ] == OBJECT ? objects[ index ] : objectAt( index );
+    }
+
+
+    /**
+     * Check whether an entry of this table holds the same value as an entry of another table
+     * Primitive entries are compared by kind and bits, other values through equals()
+     * @param index the entry index in this table
+     * @param other the other table
+     * @param otherIndex the entry index in the other table
+     * @return true if both entries hold an equal value
+     */
+    boolean sameValueAt(int index, ValueTable other, int otherIndex)
+    {
+        byte kind = kinds[ index ];
+        if (kind != other.kinds[ otherIndex ])
+            return false;
+
+        if (kind != OBJECT && kind != LATIN1)
+            return primitives[ index ] == other.primitives[ otherIndex ];
+
+        Object value = objects[ index ];
+        return value == null ? other.objects[ otherIndex ] == null : value.equals( other.objects[ otherIndex ] );
+    }
+
+
+    /**
+     * Describe the type of the value at an entry, used for debugging messages
+     * @param index the entry index or a negative number if the entry does not exist
+     * @return the simple class name of the value
+     */
+    String typeNameAt(int index)
+    {
+        if (index < 0)
+            return "nothing";
+
+        switch (kinds[ index ])
+        {
+            case INT:       return "Integer";
+            case LONG:      return "Long";
+            case DOUBLE:    return "Double";
+            case BOOLEAN:   return "Boolean";
+            case LATIN1:    return "String";
+            default:
+            {
+                // Serialized objects that were not read yet are described without deserializing them
+                Object value = rawObjectAt( index );
+                if (value instanceof LazyObject)
+                    return ((LazyObject) value).getTypeName();
+                return value == null ? "null" : value.getClass().getSimpleName();
+            }
+        }
+    }
+
+
+    // ------- //
+    // Storage //
+    // ------- //
+
+
+    /**
+     * Estimate the memory retained by the paths and String values of this table
+     * Objects that are used by several entries are counted once
+     * @return the estimated sizes, compared to storing every path and String value separately
+     */
+    StorageStatistics measure()
+    {
+        long plainPathBytes = 4L * size;
+        for (int i = 0; i < size; i++)
+            plainPathBytes += StorageStatistics.stringBytes( pathAt( i ) );
+
+        long pathBytes = paths != null ? plainPathBytes : trie.estimateBytes();
+
+        long valueBytes = 0;
+        long plainValueBytes = 0;
+        Map<Object, Boolean> counted = new IdentityHashMap<Object, Boolean>();
+
+        for (int i = 0; i < size; i++)
+        {
+            Object value = objects[ i ];
+            long bytes;
+
+            if (kinds[ i ] == LATIN1)
+            {
+                bytes = 24 + StorageStatistics.arrayBytes( ((Latin1) value).bytes.length );
+                plainValueBytes += StorageStatistics.stringBytes( value.toString() );
+            }
+            else if (kinds[ i ] == OBJECT && value instanceof String)
+            {
+                bytes = StorageStatistics.stringBytes( (String) value );
+                plainValueBytes += bytes;
+            }
+            else
+            {
+                continue;
+            }
+
+            if (counted.put(value, Boolean.TRUE) == null)
+                valueBytes += bytes;
+        }
+
+        if (storage == 0)
+            valueBytes = plainValueBytes;
+
+        return new StorageStatistics(size, pathBytes, plainPathBytes, valueBytes, plainValueBytes);
+    }
+
+
+    // ------- //
+    // Editing //
+    // ------- //
+
+
+    /**
+     * Create a copy of this table in which a path is replaced by new values
+     * The path itself, every path within it and every parent path that holds a value are removed first
+     * @param path the full path that is being set
+     * @param leaves the new values by full path, all within the given path. Empty to only remove the path
+     * @return a new table
+     */
+    ValueTable with(String path, Map<String, Object> leaves)
+    {
+        Builder builder = new Builder(size + leaves.size(), storage);
+        String prefix = path + ".";
+
+        for (int i = 0; i < size; i++)
+        {
+            String existing = pathAt( i );
+            if (existing.equals( path ) || existing.startsWith( prefix ) || path.startsWith( existing + "." ))
+                continue;
+
+            builder.putEntry(existing, kinds[ i ], primitives[ i ], kinds[ i ] == OBJECT || kinds[ i ] == LATIN1 ? objects[ i ] : null);
+        }
+
+        for (Map.Entry<String, Object> leaf : leaves.entrySet())
+            builder.put(leaf.getKey(), leaf.getValue());
+
+        return builder.build();
+    }
+
+
+    // ------------ //
+    // Hash helpers //
+    // ------------ //
+
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+
+    /**
+     * Get a power of two capacity that keeps the load factor at or below 0.5
+     */
+    private static int tableCapacity(int entries)
+    {
+        int capacity = 2;
+        while (capacity < entries * 2)
+            capacity <<= 1;
+        return capacity;
+    }
+
+
+    private static void insert(int[] table, int hash, int index)
+    {
+        int mask = table.length - 1;
+        int bucket = spread( hash ) & mask;
+
+        while (table[ bucket ] != 0)
+            bucket = (bucket + 1) & mask;
+
+        table[ bucket ] = index + 1;
+    }
+
+
+    // ------- //
+    // Builder //
+    // ------- //
+
+
+    static final class Builder {
+
+        // Collects entries in insertion order, putting an existing path again overwrites its value
+
+        private String[] paths;
+        private byte[] kinds;
+        private long[] primitives;
+        private Object[] objects;
+        private int[] table;
+        private int size;
+        private final int storage;          // The storage flags of the table that is built
+
+
+        Builder(int expectedSize)
+        {
+            this(expectedSize, 0);
+        }
+
+
+        /**
+         * Create a builder for a table with the given storage
+         * @param expectedSize the expected amount of entries
+         * @param storage the storage flags (see COMPACT_ constants), zero to store every path and value as is
+         */
+        Builder(int expectedSize, int storage)
+        {
+            this.storage = storage;
+            int capacity = Math.max(expectedSize, 8);
+            paths = new String[ capacity ];
+            kinds = new byte[ capacity ];
+            primitives = new long[ capacity ];
+            objects = new Object[ capacity ];
+            table = new int[ tableCapacity( capacity ) ];
+        }
+
+
+        /**
+         * Add a value to the table, numbers and booleans will be unboxed
+         * @param path the full path
+         * @param value the value
+         * @return this builder
+         */
+        Builder put(String path, Object value)
+        {
+            int index = indexFor( path );
+
+            if (value instanceof Integer)
+                setPrimitive(index, INT, (Integer) value);
+            else if (value instanceof Long)
+                setPrimitive(index, LONG, (Long) value);
+            else if (value instanceof Double)
+                setPrimitive(index, DOUBLE, Double.doubleToRawLongBits( (Double) value ));
+            else if (value instanceof Boolean)
+                setPrimitive(index, BOOLEAN, (Boolean) value ? 1 : 0);
+            else if (value instanceof String && storage != 0)
+                putString(index, (String) value);
+            else
+            {
+                kinds[ index ] = OBJECT;
+                primitives[ index ] = 0;
+                objects[ index ] = value;
+            }
+
+            return this;
+        }
+
+
+        /**
+         * Add a primitive value to the table from its raw bits
+         * @param path the full path
+         * @param kind INT, LONG, DOUBLE or BOOLEAN
+         * @param bits the raw bits, as returned by ValueTable#bitsAt(int)
+         * @return this builder
+         */
+        Builder putPrimitive(String path, byte kind, long bits)
+        {
+            int index = indexFor( path );
+
+            setPrimitive(index, kind, bits);
+            return this;
+        }
+
+
+        /**
+         * Copy an entry of another table as it is stored
+         * @param path the full path
+         * @param kind the kind of the entry
+         * @param bits the raw bits of a primitive entry
+         * @param object the stored object of an OBJECT or LATIN1 entry, null for primitive entries
+         * @return this builder
+         */
+        Builder putEntry(String path, byte kind, long bits, Object object)
+        {
+            if (kind == LATIN1 && (storage & COMPACT_STRINGS) == 0)
+                return put(path, object.toString());
+            if (kind == OBJECT)
+                return put(path, object);
+
+            int index = indexFor( path );
+
+            kinds[ index ] = kind;
+            primitives[ index ] = bits;
+            objects[ index ] = object;
+            return this;
+        }
+
+
+        ValueTable build()
+        {
+            return new ValueTable(
+                    Arrays.copyOf(paths, size),
+                    Arrays.copyOf(kinds, size),
+                    Arrays.copyOf(primitives, size),
+                    Arrays.copyOf(objects, size),
+                    size,
+                    storage);
+        }
+
+
+        /**
+         * Store a String value in compact form: as Latin1 bytes when possible and enabled, interned otherwise
+         */
+        private void putString(int index, String value)
+        {
+            boolean latin1 = (storage & COMPACT_STRINGS) != 0;
+            for (int i = 0; latin1 && i < value.length(); i++)
+                latin1 = value.charAt( i ) <= 0xFF;
+
+            primitives[ index ] = 0;
+
+            if (latin1)
+            {
+                kinds[ index ] = LATIN1;
+                objects[ index ] = Interner.intern( new Latin1( value.getBytes( StandardCharsets.ISO_8859_1 ) ) );
+            }
+            else
+            {
+                kinds[ index ] = OBJECT;
+                objects[ index ] = Interner.intern( value );
+            }
+        }
+
+
+        private void setPrimitive(int index, byte kind, long value)
+        {
+            kinds[ index ] = kind;
+            primitives[ index ] = value;
+            objects[ index ] = null;
+        }
+
+
+        /**
+         * Get the index of a path, a new entry is created if the path does not exist yet
+         */
+        private int indexFor(String path)
+        {
+            int index = find( path );
+
+            if (index < 0)
+            {
+                if (size == paths.length)
+                    grow();
+
+                index = size++;
+                paths[ index ] = path;
+                insert(table, path.hashCode(), index);
+            }
+
+            return index;
+        }
+
+
+        private int find(String path)
+        {
+            int mask = table.length - 1;
+            int bucket = spread( path.hashCode() ) & mask;
+
+            int entry;
+            while ((entry = table[ bucket ]) != 0)
+            {
+                if (paths[ entry - 1 ].equals( path ))
+                    return entry - 1;
+                bucket = (bucket + 1) & mask;
+            }
+
+            return -1;
+        }
+
+
+        private void grow()
+        {
+            int capacity = paths.length * 2;
+            paths = Arrays.copyOf(paths, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            primitives = Arrays.copyOf(primitives, capacity);
+            objects = Arrays.copyOf(objects, capacity);
+
+            table = new int[ tableCapacity( capacity ) ];
+            for (int i = 0; i < size; i++)
+                insert(table, paths[ i ].hashCode(), i);
+        }
+    }
+
+
+    private static final class Latin1 {
+
+        // A String of which every character fits in one byte, compared by its contents so it can be interned
+
+        private final byte[] bytes;
+        private final int hash;
+
+        private Latin1(byte[] bytes)
+        {
+            this.bytes = bytes;
+            this.hash = Arrays.hashCode( bytes );
+        }
+
+        @Override
+        public boolean equals(Object other)
+        {
+            return other instanceof Latin1 && Arrays.equals(bytes, ((Latin1) other).bytes);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public String toString()
+        {
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+
+
+    private static final class RecentString {
+
+        private final int index;            // The entry this String was created for
+        private final String value;         // The created String
+
+        private RecentString(int index, String value)
+        {
+            this.index = index;
+            this.value = value;
+        }
+    }
+}
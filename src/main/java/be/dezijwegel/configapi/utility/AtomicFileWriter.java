@@ -0,0 +1,50 @@
+package be.dezijwegel.configapi.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class AtomicFileWriter {
+
+    // Replaces files without ever leaving a partially written file behind
+    // The new contents are written to a temporary file next to the target, flushed to disk and then moved over the target in one step
+
+    private AtomicFileWriter() {}
+
+
+    /**
+     * This method should not be used outside this API
+     * Replace the contents of a file atomically
+     * Readers will either see the old or the new contents, even if the server crashes while writing
+     * @param file the file to write
+     * @param contents the new contents
+     * @throws IOException when the file cannot be written
+     */
+    public static void write(File file, byte[] contents) throws IOException
+    {
+        File directory = file.getAbsoluteFile().getParentFile();
+        if ( ! directory.isDirectory() && ! directory.mkdirs() )
+            throw new IOException("Cannot create the directory " + directory.getName());
+
+        File temp = new File(directory, file.getName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            ByteBuffer buffer = ByteBuffer.wrap( contents );
+            while (buffer.hasRemaining())
+                channel.write( buffer );
+            channel.force( true );
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.deleteIfExists( temp.toPath() );
+            throw ex;
+        }
+    }
+}
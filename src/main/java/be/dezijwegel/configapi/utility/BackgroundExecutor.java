@@ -0,0 +1,101 @@
+package be.dezijwegel.configapi.utility;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BackgroundExecutor {
+
+    // A small pool of daemon threads which is shared by every ConfigAPI instance on the server
+    // Threads are only created when work is submitted and stop after a minute of inactivity
+
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private static final ScheduledThreadPoolExecutor scheduler = createScheduler();
+
+    private static ForkJoinPool forkJoinPool;       // Loads many files at once, created on first use
+
+
+    private BackgroundExecutor() {}
+
+
+    /**
+     * This method should not be used outside this API
+     * Get the executor that runs background work such as asynchronous reloads
+     * @return the shared executor
+     */
+    public static Executor get()
+    {
+        return executor;
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Run a task on the shared executor after a delay
+     * @param task the task to run
+     * @param delay the delay
+     * @param unit the unit of the delay
+     * @return a future which can be used to cancel the task
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        // The scheduler thread only hands the task over, so a slow task cannot delay other scheduled tasks
+        return scheduler.schedule(() -> executor.execute( task ), delay, unit);
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Get the pool that loads many config files in parallel
+     * @return the shared ForkJoinPool
+     */
+    public static synchronized ForkJoinPool forkJoinPool()
+    {
+        if (forkJoinPool == null)
+            forkJoinPool = new ForkJoinPool( Runtime.getRuntime().availableProcessors() );
+        return forkJoinPool;
+    }
+
+
+    /**
+     * Create a thread factory for daemon threads with the given name prefix
+     * @param name the prefix of each thread's name
+     * @return a ThreadFactory
+     */
+    public static ThreadFactory daemonThreads(String name)
+    {
+        AtomicInteger counter = new AtomicInteger();
+
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+
+    private static ThreadPoolExecutor createExecutor()
+    {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), daemonThreads("ConfigAPI-Worker"));
+        pool.allowCoreThreadTimeOut( true );
+        return pool;
+    }
+
+
+    private static ScheduledThreadPoolExecutor createScheduler()
+    {
+        ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, daemonThreads("ConfigAPI-Scheduler"));
+        pool.setKeepAliveTime(60, TimeUnit.SECONDS);
+        pool.allowCoreThreadTimeOut( true );
+        return pool;
+    }
+}
@@ -0,0 +1,136 @@
+package be.dezijwegel.configapi.utility;
+
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class DisableListener implements Listener {
+
+    // Runs cleanup tasks when a plugin is disabled
+    // One listener is registered per plugin, on behalf of that plugin, so Bukkit removes it along with the plugin
+
+    private static final Map<Plugin, Tasks> tasks = new ConcurrentHashMap<Plugin, Tasks>();
+
+    private final Plugin plugin;        // The plugin this listener watches
+
+
+    private DisableListener(Plugin plugin)
+    {
+        this.plugin = plugin;
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Run the given task once the given plugin is disabled
+     * A listener can only be registered while the plugin is enabled: when it is not enabled yet (eg. in onLoad), the listener is registered
+     * by the first call to DisableListener#onDisable(Plugin, Runnable) or DisableListener#register(Plugin) after the plugin was enabled
+     * @param plugin the plugin to watch
+     * @param task the task to run when the plugin is disabled
+     */
+    public static void onDisable(Plugin plugin, Runnable task)
+    {
+        Tasks pluginTasks = tasks.computeIfAbsent(plugin, key -> new Tasks());
+        pluginTasks.list.add( task );
+
+        register(plugin, pluginTasks);
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Register the listener of a plugin if it has tasks but no listener yet, because they were added before the plugin was enabled
+     * This is cheap when there is nothing to register, so it can be called on every reload
+     * @param plugin the plugin to watch
+     */
+    public static void register(Plugin plugin)
+    {
+        Tasks pluginTasks = tasks.get( plugin );
+
+        if (pluginTasks != null)
+            register(plugin, pluginTasks);
+    }
+
+
+    private static void register(Plugin plugin, Tasks pluginTasks)
+    {
+        if (pluginTasks.registered || Bukkit.getServer() == null || ! plugin.isEnabled())
+            return;
+
+        synchronized (pluginTasks)
+        {
+            if (pluginTasks.registered)
+                return;
+
+            Bukkit.getPluginManager().registerEvents(new DisableListener( plugin ), plugin);
+            pluginTasks.registered = true;
+        }
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Forget a task that was given to DisableListener#onDisable(Plugin, Runnable), so it no longer keeps its objects reachable
+     * @param plugin the plugin the task was registered for
+     * @param task the exact same task instance
+     */
+    public static void cancel(Plugin plugin, Runnable task)
+    {
+        Tasks pluginTasks = tasks.get( plugin );
+
+        if (pluginTasks != null)
+            pluginTasks.list.remove( task );
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Run and forget all tasks of the given plugin
+     * @param plugin the plugin that is being disabled
+     */
+    public static void runTasks(Plugin plugin)
+    {
+        Tasks pluginTasks = tasks.remove( plugin );
+
+        if (pluginTasks == null)
+            return;
+
+        for (Runnable task : pluginTasks.list)
+        {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                Logger.sendToConsole("An error occurred while cleaning up: " + ex.getMessage(), plugin);
+            }
+        }
+
+        // Make sure everything that was logged while cleaning up is written before the server stops
+
+        Logger.flush();
+    }
+
+
+    @EventHandler (priority = EventPriority.MONITOR)
+    public void onPluginDisable(PluginDisableEvent event)
+    {
+        if (event.getPlugin() == plugin)
+            runTasks( plugin );
+    }
+
+
+    private static final class Tasks {
+
+        // The cleanup tasks of one plugin
+
+        private final List<Runnable> list = new CopyOnWriteArrayList<Runnable>();       // The tasks to run, in the order they were added
+        private volatile boolean registered = false;                                    // Whether a listener was registered for this plugin
+    }
+}
@@ -0,0 +1,135 @@
+package be.dezijwegel.configapi.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+
+public final class FileFingerprint {
+
+    // Describes the state of a file at some point in time: its size, modification time and a hash of its contents
+    // Two fingerprints with the same size and hash are considered to describe the same contents
+    // Some file systems only store modification times in steps of one or two seconds: a file that was read within that time after it was
+    // modified can be changed again without getting a newer modification time, so the contents of such a file are always compared
+
+    public static final FileFingerprint MISSING = new FileFingerprint(-1, 0, 0, 0);  // Describes a file that does not exist
+
+    private static final long MODIFICATION_TIME_STEP = 2000;    // The coarsest resolution of modification times, in milliseconds
+
+    private final long size;            // The size in bytes
+    private final long lastModified;    // The modification time in milliseconds
+    private final long hash;            // The CRC32 of the contents
+    private final long readAt;          // The time at which the contents were read, in milliseconds
+
+
+    private FileFingerprint(long size, long lastModified, long hash, long readAt)
+    {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+        this.readAt = readAt;
+    }
+
+
+    /**
+     * Create a fingerprint of contents that have already been read
+     * @param contents the contents of the file
+     * @param lastModified the modification time of the file
+     * @return the fingerprint
+     */
+    public static FileFingerprint of(byte[] contents, long lastModified)
+    {
+        CRC32 crc = new CRC32();
+        crc.update(contents, 0, contents.length);
+        return new FileFingerprint(contents.length, lastModified, crc.getValue(), System.currentTimeMillis());
+    }
+
+
+    /**
+     * Read a file and create its fingerprint
+     * @param file the file
+     * @return the fingerprint or MISSING if the file does not exist
+     * @throws IOException when the file cannot be read
+     */
+    public static FileFingerprint of(File file) throws IOException
+    {
+        if ( ! file.isFile() )
+            return MISSING;
+
+        long lastModified = file.lastModified();
+        return of(Files.readAllBytes( file.toPath() ), lastModified);
+    }
+
+
+    /**
+     * Check whether a file still has the contents described by this fingerprint
+     * The size and modification time are checked first, the file is only read when those are inconclusive
+     * or when the contents were read so soon after the file was modified that a newer change could have the same modification time
+     * @param file the file to check
+     * @return true if the contents did not change
+     */
+    public boolean matches(File file)
+    {
+        if ( ! file.isFile() )
+            return this == MISSING;
+
+        if (file.length() != size)
+            return false;
+
+        if (file.lastModified() == lastModified && readAt - lastModified >= MODIFICATION_TIME_STEP)
+            return true;
+
+        try {
+            return sameContents( of( file ) );
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Check whether two fingerprints describe the same contents, the modification time is ignored
+     * @param other another fingerprint
+     * @return true if the size and hash are equal
+     */
+    public boolean sameContents(FileFingerprint other)
+    {
+        return other != null && size == other.size && hash == other.hash;
+    }
+
+
+    public long getSize()
+    {
+        return size;
+    }
+
+
+    public long getLastModified()
+    {
+        return lastModified;
+    }
+
+
+    public long getHash()
+    {
+        return hash;
+    }
+
+
+    @Override
+    public boolean equals(Object other)
+    {
+        if ( ! (other instanceof FileFingerprint))
+            return false;
+
+        FileFingerprint fingerprint = (FileFingerprint) other;
+        return size == fingerprint.size && lastModified == fingerprint.lastModified && hash == fingerprint.hash;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(size) * 31 + Long.hashCode(hash);
+    }
+}
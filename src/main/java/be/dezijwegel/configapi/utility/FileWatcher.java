@@ -0,0 +1,266 @@
+package be.dezijwegel.configapi.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public class FileWatcher {
+
+    // Watches files for changes through a single WatchService, shared by every ConfigAPI instance on the server
+    // One thread waits for file system events, the listeners run on the threads of BackgroundExecutor
+    // Bursts of events for the same file (editors often write several times) are merged: listeners only run once the file has been quiet for a while
+    // The WatchService is closed and its thread stops once the last file is no longer watched, so nothing keeps a disabled plugin loaded
+
+    private static final long DEBOUNCE_MILLIS = 500;    // The time a file should be left alone before its listeners are run
+
+    private static FileWatcher instance;                // The shared watcher, created on first use and discarded when nothing is watched
+
+    private final WatchService service;                                             // Receives the file system events
+    private final Map<Path, WatchKey> directories = new HashMap<Path, WatchKey>();  // Every watched directory
+    private final Map<Path, List<Watch>> watches = new HashMap<Path, List<Watch>>(); // The watches of each file
+    private final Map<Path, ScheduledFuture<?>> pending = new HashMap<Path, ScheduledFuture<?>>(); // Debounced listener runs per file
+
+
+    private FileWatcher() throws IOException
+    {
+        service = FileSystems.getDefault().newWatchService();
+
+        Thread thread = BackgroundExecutor.daemonThreads("ConfigAPI-FileWatcher").newThread( this::processEvents );
+        thread.start();
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Run the listener whenever the given file is created or modified
+     * The listener runs on a background thread, after the file has not been touched for a short while
+     * @param file the file to watch
+     * @param listener the task to run after a change
+     * @return a Watch which can be used to stop watching
+     * @throws IOException when the directory of the file cannot be watched
+     */
+    public static synchronized Watch watch(File file, Runnable listener) throws IOException
+    {
+        if (instance == null)
+            instance = new FileWatcher();
+
+        return instance.register(file.toPath().toAbsolutePath().normalize(), listener);
+    }
+
+
+    /**
+     * Stop watching for a registration, the shared watcher is closed when it was the last one
+     * @param watch the registration to remove
+     */
+    private static synchronized void cancel(Watch watch)
+    {
+        FileWatcher watcher = watch.watcher;
+
+        if (watcher.unregister( watch ) && watcher == instance)
+        {
+            instance = null;
+            watcher.close();
+        }
+    }
+
+
+    private synchronized Watch register(Path file, Runnable listener) throws IOException
+    {
+        Path directory = file.getParent();
+
+        if ( ! directories.containsKey( directory ))
+        {
+            WatchKey key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.put(directory, key);
+        }
+
+        Watch watch = new Watch(this, file, listener);
+
+        List<Watch> fileWatches = watches.get( file );
+        if (fileWatches == null)
+        {
+            fileWatches = new ArrayList<Watch>();
+            watches.put(file, fileWatches);
+        }
+        fileWatches.add( watch );
+
+        return watch;
+    }
+
+
+    /**
+     * Remove a registration
+     * @param watch the registration to remove
+     * @return true if no file is watched anymore
+     */
+    private synchronized boolean unregister(Watch watch)
+    {
+        List<Watch> fileWatches = watches.get( watch.file );
+
+        if (fileWatches == null || ! fileWatches.remove( watch ))
+            return false;
+
+        if ( ! fileWatches.isEmpty() )
+            return false;
+
+        // Nobody is interested in this file anymore
+
+        watches.remove( watch.file );
+
+        ScheduledFuture<?> scheduled = pending.remove( watch.file );
+        if (scheduled != null)
+            scheduled.cancel( false );
+
+        // Stop watching the directory when none of its files are watched
+
+        Path directory = watch.file.getParent();
+        for (Path file : watches.keySet())
+        {
+            if (file.getParent().equals( directory ))
+                return false;
+        }
+
+        WatchKey key = directories.remove( directory );
+        if (key != null)
+            key.cancel();
+
+        return watches.isEmpty();
+    }
+
+
+    /**
+     * Close the WatchService, which stops the watcher thread
+     */
+    private synchronized void close()
+    {
+        for (ScheduledFuture<?> scheduled : pending.values())
+            scheduled.cancel( false );
+        pending.clear();
+
+        try {
+            service.close();
+        } catch (IOException ex) {
+            Logger.log("Could not stop watching files: " + ex.getMessage());
+        }
+    }
+
+
+    /**
+     * Wait for file system events and schedule the listeners of each changed file
+     * Runs on the watcher thread until the WatchService is closed
+     */
+    private void processEvents()
+    {
+        while (true)
+        {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                    scheduleDirectory( directory );
+                else
+                    schedule( directory.resolve( (Path) event.context() ) );
+            }
+
+            key.reset();
+        }
+    }
+
+
+    private synchronized void scheduleDirectory(Path directory)
+    {
+        for (Path file : new ArrayList<Path>( watches.keySet() ))
+        {
+            if (file.getParent().equals( directory ))
+                schedule( file );
+        }
+    }
+
+
+    /**
+     * (Re)start the debounce delay of a file
+     * @param file the file that was changed
+     */
+    private synchronized void schedule(Path file)
+    {
+        if ( ! watches.containsKey( file ))
+            return;
+
+        ScheduledFuture<?> previous = pending.get( file );
+        if (previous != null)
+            previous.cancel( false );
+
+        pending.put(file, BackgroundExecutor.schedule(() -> notifyListeners( file ), DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+
+    private void notifyListeners(Path file)
+    {
+        List<Watch> fileWatches;
+
+        synchronized (this)
+        {
+            pending.remove( file );
+            List<Watch> registered = watches.get( file );
+            if (registered == null)
+                return;
+            fileWatches = new ArrayList<Watch>( registered );
+        }
+
+        for (Watch watch : fileWatches)
+        {
+            try {
+                watch.listener.run();
+            } catch (Exception ex) {
+                Logger.log("An error occurred while handling a change of " + file.getFileName() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+
+    public static final class Watch {
+
+        // A single registration of a listener for a file
+
+        private final FileWatcher watcher;      // The watcher this registration belongs to
+        private final Path file;                // The watched file
+        private final Runnable listener;        // The task to run after a change
+
+
+        private Watch(FileWatcher watcher, Path file, Runnable listener)
+        {
+            this.watcher = watcher;
+            this.file = file;
+            this.listener = listener;
+        }
+
+
+        /**
+         * Stop watching the file, the listener will not be run anymore
+         */
+        public void cancel()
+        {
+            FileWatcher.cancel( this );
+        }
+    }
+}
@@ -7,8 +7,43 @@ import org.bukkit.ChatColor;
 import org.bukkit.command.ConsoleCommandSender;
 import org.bukkit.plugin.Plugin;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 public class Logger {
 
+    // Messages are not written by the thread that logs them: they are put in a bounded queue and written by a single background thread
+    // The background thread takes all queued messages at once and writes them as one multi-line output, instead of one write per line
+    // Debug messages can be given as a Supplier, which is only called (on the background thread) when the message is actually written
+    // Messages of Logger#debug that are repeated many times in a short while are only written a few times, followed by a count of the skipped ones
+    //
+    // When the queue is full, messages of Logger#debug are dropped (and counted) while other messages wait for free space, so they are never lost
+    // The background thread stops after a while without messages and is started again by the next message, so it does not outlive the plugins that use it
+
+    private static final int QUEUE_SIZE = 4096;             // The maximum amount of waiting messages
+    private static final int MAX_BATCH = 512;               // The maximum amount of messages that are written at once
+    private static final long REPEAT_WINDOW_MILLIS = 10000; // The time in which repeated debug messages are counted
+    private static final int REPEAT_LIMIT = 3;              // The amount of times the same debug message is written within that time
+    private static final long IDLE_MILLIS = 30000;          // The time without messages after which the background thread stops
+
+    private static final BlockingQueue<Entry> queue = new ArrayBlockingQueue<Entry>( QUEUE_SIZE );
+    private static final AtomicLong dropped = new AtomicLong();     // Debug messages that did not fit in the queue
+    private static final AtomicLong submitted = new AtomicLong();   // Messages that were put in the queue
+    private static final Object progress = new Object();            // Notified each time a batch is written
+    private static long written = 0;                                // Messages that were handled by the writer, guarded by progress
+    private static Thread writer;                                   // The background thread, started on first use and null while stopped
+
+    private static final Map<String, Repeat> repeats = new HashMap<String, Repeat>();   // Recent debug messages, only used by the writer thread
+
+
     /**
      * This method should not be used outside this API
      * Print the given message to an output for debugging purposes ONLY
@@ -17,7 +52,33 @@ public class Logger {
      */
     public static void log(String message)
     {
-        System.out.println("[ConfigAPI] " + message);
+        offer( new Entry(null, null, message, false) );
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Print a message for debugging purposes ONLY, the message is only created when it is written
+     * @param message creates the message, this is called on a background thread
+     */
+    public static void log(Supplier<String> message)
+    {
+        offer( new Entry(null, null, message, false) );
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Print a message for debugging purposes ONLY, if debug logging is enabled in the given settings
+     * Nothing is created when debug logging is disabled, the message itself is only created when it is written
+     * These messages are dropped when too many are logged at once, and only written a few times when repeated often
+     * @param settings the settings that determine whether debug messages are shown
+     * @param message creates the message, this is called on a background thread
+     */
+    public static void debug(Settings settings, Supplier<String> message)
+    {
+        if (settings.getDoDebugLogging())
+            offerDebug( new Entry(null, null, message, true) );
     }
 
 
@@ -29,8 +90,7 @@ public class Logger {
      */
     public static void sendToConsole(String message, Plugin plugin)
     {
-        ConsoleCommandSender console = Bukkit.getServer().getConsoleSender();
-        console.sendMessage("[" + plugin.getName() + "] " + message);
+        offer( new Entry(plugin, null, message, false) );
     }
 
 
@@ -43,14 +103,337 @@ public class Logger {
      */
     public static void sendToConsole(String message, Plugin plugin, @Nullable ChatColor color)
     {
-        if (color == null)
+        offer( new Entry(plugin, color, message, false) );
+    }
+
+
+    /**
+     * This method should not be used outside this API
+     * Wait until all messages that were logged so far are written, or until a few seconds have passed
+     * This is done automatically when a plugin that uses this API is disabled
+     */
+    public static void flush()
+    {
+        long target = submitted.get();
+        long deadline = System.currentTimeMillis() + 5000;
+
+        synchronized (progress)
         {
-            sendToConsole(message, plugin);
+            while (written < target)
+            {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0)
+                    return;
+
+                try {
+                    progress.wait( remaining );
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+
+    // -------- //
+    // Queueing //
+    // -------- //
+
+
+    private static void offerDebug(Entry entry)
+    {
+        if (queue.offer( entry ))
+            submitted.incrementAndGet();
+        else
+            dropped.incrementAndGet();
+
+        ensureWriter();
+    }
+
+
+    private static void offer(Entry entry)
+    {
+        try {
+            queue.put( entry );
+            submitted.incrementAndGet();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        ensureWriter();
+    }
+
+
+    /**
+     * Start the writer thread if it is not running
+     * This is called after a message was queued: a writer that is stopping checks the queue while holding the same lock
+     */
+    private static synchronized void ensureWriter()
+    {
+        if (writer != null)
             return;
+
+        writer = BackgroundExecutor.daemonThreads("ConfigAPI-Logger").newThread( Logger::writeMessages );
+        writer.start();
+    }
+
+
+    // ------- //
+    // Writing //
+    // ------- //
+
+
+    /**
+     * Write all queued messages in batches
+     * Runs on the writer thread until no messages were logged for a while
+     */
+    private static void writeMessages()
+    {
+        List<Entry> batch = new ArrayList<Entry>( MAX_BATCH );
+        long lastMessage = System.currentTimeMillis();
+
+        while (true)
+        {
+            Entry first;
+            try {
+                first = queue.poll(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                synchronized (Logger.class)
+                {
+                    writer = null;
+                }
+                return;
+            }
+
+            if (first != null)
+            {
+                batch.add( first );
+                queue.drainTo(batch, MAX_BATCH - 1);
+                lastMessage = System.currentTimeMillis();
+            }
+
+            try {
+                write( batch );
+            } catch (RuntimeException ex) {
+                System.out.println("[ConfigAPI] Could not write log messages: " + ex.getMessage());
+            }
+
+            synchronized (progress)
+            {
+                written += batch.size();
+                progress.notifyAll();
+            }
+
+            batch.clear();
+
+            // Stop when idle, summaries of repeated messages are written first
+
+            if (System.currentTimeMillis() - lastMessage >= IDLE_MILLIS && repeats.isEmpty() && dropped.get() == 0)
+            {
+                synchronized (Logger.class)
+                {
+                    if (queue.isEmpty())
+                    {
+                        writer = null;
+                        return;
+                    }
+                }
+            }
         }
+    }
+
 
-        ConsoleCommandSender console = Bukkit.getServer().getConsoleSender();
-        console.sendMessage("[" + plugin.getName() + "] " + color + message);
+    /**
+     * Write a batch of messages, consecutive messages to the same output are written at once
+     * Also writes the summary of repeated messages that are no longer being repeated
+     * @param batch the messages in the order they were logged
+     */
+    private static void write(List<Entry> batch)
+    {
+        long now = System.currentTimeMillis();
+
+        List<String> debugLines = new ArrayList<String>();
+        List<String> consoleLines = new ArrayList<String>();
+        Plugin consolePlugin = null;
+
+        for (Entry entry : batch)
+        {
+            if (entry.plugin == null)
+            {
+                String message = format( entry );
+                if (entry.limited && ! shouldWrite(message, now, debugLines))
+                    continue;
+
+                if ( ! consoleLines.isEmpty() )
+                {
+                    writeConsole( consoleLines );
+                    consoleLines.clear();
+                }
+
+                debugLines.add("[ConfigAPI] " + message);
+            }
+            else
+            {
+                if ( ! debugLines.isEmpty() )
+                {
+                    writeDebug( debugLines );
+                    debugLines.clear();
+                }
+
+                if (consolePlugin != entry.plugin && ! consoleLines.isEmpty())
+                {
+                    writeConsole( consoleLines );
+                    consoleLines.clear();
+                }
+
+                consolePlugin = entry.plugin;
+                consoleLines.add("[" + entry.plugin.getName() + "] " + (entry.color != null ? entry.color.toString() : "") + format( entry ));
+            }
+        }
+
+        long lost = dropped.getAndSet( 0 );
+        if (lost > 0)
+            debugLines.add("[ConfigAPI] " + lost + " debug messages were dropped because too many were logged at once");
+
+        endRepeats(now, debugLines);
+
+        writeConsole( consoleLines );
+        writeDebug( debugLines );
     }
 
+
+    private static String format(Entry entry)
+    {
+        if ( ! (entry.message instanceof Supplier) )
+            return String.valueOf( entry.message );
+
+        try {
+            return String.valueOf( ((Supplier<?>) entry.message).get() );
+        } catch (RuntimeException ex) {
+            return "A debug message could not be created: " + ex;
+        }
+    }
+
+
+    private static void writeDebug(List<String> lines)
+    {
+        if (lines.isEmpty())
+            return;
+
+        System.out.println( String.join(System.lineSeparator(), lines) );
+    }
+
+
+    private static void writeConsole(List<String> lines)
+    {
+        if (lines.isEmpty())
+            return;
+
+        ConsoleCommandSender console = Bukkit.getServer() != null ? Bukkit.getServer().getConsoleSender() : null;
+
+        if (console != null)
+            console.sendMessage( lines.toArray( new String[0] ) );
+        else
+            System.out.println( String.join(System.lineSeparator(), lines) );
+    }
+
+
+    // ------------- //
+    // Rate limiting //
+    // ------------- //
+
+
+    /**
+     * Check whether a debug message should be written or skipped because it was repeated too often
+     * @param message the debug message
+     * @param now the current time in milliseconds
+     * @param lines the lines that will be written, a summary is added when a new window starts for a repeated message
+     * @return true if the message should be written
+     */
+    private static boolean shouldWrite(String message, long now, List<String> lines)
+    {
+        Repeat repeat = repeats.get( message );
+
+        if (repeat == null || now - repeat.windowStart >= REPEAT_WINDOW_MILLIS)
+        {
+            if (repeat != null && repeat.skipped > 0)
+                lines.add( repeat.summary( message ) );
+
+            repeats.put(message, new Repeat( now ));
+            return true;
+        }
+
+        repeat.count++;
+        if (repeat.count <= REPEAT_LIMIT)
+            return true;
+
+        repeat.skipped++;
+        return false;
+    }
+
+
+    /**
+     * Forget messages whose window has passed and write a summary for those that were skipped
+     * @param now the current time in milliseconds
+     * @param lines the lines that will be written
+     */
+    private static void endRepeats(long now, List<String> lines)
+    {
+        Iterator<Map.Entry<String, Repeat>> iterator = repeats.entrySet().iterator();
+
+        while (iterator.hasNext())
+        {
+            Map.Entry<String, Repeat> entry = iterator.next();
+
+            if (now - entry.getValue().windowStart < REPEAT_WINDOW_MILLIS)
+                continue;
+
+            if (entry.getValue().skipped > 0)
+                lines.add( entry.getValue().summary( entry.getKey() ));
+            iterator.remove();
+        }
+    }
+
+
+    private static final class Repeat {
+
+        // Counts a debug message within its window
+
+        private final long windowStart;     // The time at which the message was first written in this window
+        private int count = 1;              // The amount of times it was logged in this window
+        private int skipped = 0;            // The amount of times it was not written
+
+
+        private Repeat(long windowStart)
+        {
+            this.windowStart = windowStart;
+        }
+
+
+        private String summary(String message)
+        {
+            return "[ConfigAPI] " + message + " (repeated " + skipped + " more times)";
+        }
+    }
+
+
+    private static final class Entry {
+
+        // A single logged message
+
+        private final Plugin plugin;        // The plugin for console messages, null for debug messages
+        private final ChatColor color;      // The color of a console message, may be null
+        private final Object message;       // The message as a String or as a Supplier of a String
+        private final boolean limited;      // True for messages of Logger#debug, which may be dropped or skipped when repeated
+
+
+        private Entry(Plugin plugin, ChatColor color, Object message, boolean limited)
+        {
+            this.plugin = plugin;
+            this.color = color;
+            this.message = message;
+            this.limited = limited;
+        }
+    }
 }